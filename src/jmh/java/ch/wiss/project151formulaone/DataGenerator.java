@@ -0,0 +1,155 @@
+package ch.wiss.project151formulaone;
+
+import org.flywaydb.core.Flyway;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Seeds a local H2 database file with a large number of generated teams and drivers, for load tests at production
+ * scale.
+ *
+ * The database is created and migrated with the application's Flyway scripts if necessary, and the rows are added
+ * after the existing ones with {@code INSERT ... SELECT} statements over H2's {@code SYSTEM_RANGE}, so the data never
+ * leaves the database engine. The rows are inserted in chunks of {@code --chunk} rows, each in its own transaction, to
+ * keep the undo log small. The search indexes of the drivers are rebuilt after the insert, and the foreign key is not
+ * checked for the generated drivers, whose teams exist by construction. The generated data is deterministic: names
+ * are numbered, countries are taken in turn from a fixed list, and drivers are spread evenly over the generated teams,
+ * with every 50th driver without a team. The generated rows are also recorded as the first version in the history
+ * tables. The ID sequences are moved past the generated rows at the end.
+ *
+ * The default database is the one of the {@code embedded} profile, so the application can be started on it with
+ * {@code --spring.profiles.active=embedded}. Stop the application first, the database file is opened exclusively. Run
+ * with {@code ./mvnw -P benchmark,loadtest verify -Dloadtest.main=ch.wiss.project151formulaone.DataGenerator
+ * -Dloadtest.args="--drivers=1000000 --teams=2000"}.
+ *
+ * Options are {@code --drivers} (default 100000), {@code --teams} (default 1000), {@code --chunk} (default 200000) and
+ * {@code --data-dir} (default ./data).
+ */
+public class DataGenerator {
+    static final List<String> COUNTRIES = List.of("Australia", "Austria", "Belgium", "Brazil", "Canada", "China",
+            "Denmark", "Finland", "France", "Germany", "Italy", "Japan", "Mexico", "Monaco", "Netherlands",
+            "New Zealand", "Spain", "Switzerland", "Thailand", "United Kingdom", "United States");
+
+    /**
+     * The search indexes of the driver table by name and column, as created by the migrations. They are dropped
+     * during the insert and rebuilt afterwards, which is faster than maintaining them row by row. The team index
+     * backs the foreign key and is kept.
+     */
+    private static final Map<String, String> DRIVER_INDEXES = Map.of(
+            "driver_country_idx", "country",
+            "driver_name_idx", "name");
+
+    public static void main(String[] args) throws Exception {
+        long driverCount = Long.parseLong(option(args, "drivers", "100000"));
+        long teamCount = Long.parseLong(option(args, "teams", "1000"));
+        long chunk = Long.parseLong(option(args, "chunk", "200000"));
+        Path dataDir = Path.of(option(args, "data-dir", "./data"));
+        String url = "jdbc:h2:file:" + dataDir.toAbsolutePath().resolve("formulaOne");
+
+        Flyway.configure()
+                .dataSource(url, "admin", "admin")
+                .baselineOnMigrate(true)
+                .baselineVersion("1.3")
+                .load()
+                .migrate();
+
+        long start = System.nanoTime();
+        try (Connection connection = DriverManager.getConnection(url, "admin", "admin");
+             Statement statement = connection.createStatement()) {
+            long firstTeam = maxId(statement, "team") + 1;
+            insert(statement, teamCount, chunk, (from, to) ->
+                    "INSERT INTO team (id, name, country) SELECT " + (firstTeam - 1) + " + X, 'Team ' || X, "
+                            + country("X") + " FROM SYSTEM_RANGE(" + from + ", " + to + ")");
+            history(statement, "team_history (team_id, valid_from, name, country)", "id, CURRENT_TIMESTAMP, name, country",
+                    "team", firstTeam, teamCount, chunk);
+            System.out.printf("Inserted %d teams%n", teamCount);
+
+            for (String index : DRIVER_INDEXES.keySet()) {
+                statement.execute("DROP INDEX IF EXISTS " + index);
+            }
+            statement.execute("ALTER TABLE driver SET REFERENTIAL_INTEGRITY FALSE");
+            long firstDriver = maxId(statement, "driver") + 1;
+            String teamId = teamCount == 0 ? "NULL"
+                    : "CASE WHEN MOD(X, 50) = 0 THEN NULL ELSE " + firstTeam + " + MOD(X, " + teamCount + ") END";
+            insert(statement, driverCount, chunk, (from, to) ->
+                    "INSERT INTO driver (id, name, country, team_id) SELECT " + (firstDriver - 1) + " + X, 'Driver ' || X, "
+                            + country("X / 7") + ", " + teamId + " FROM SYSTEM_RANGE(" + from + ", " + to + ")");
+            statement.execute("ALTER TABLE driver SET REFERENTIAL_INTEGRITY TRUE");
+            history(statement, "driver_history (driver_id, valid_from, name, country, team_id)",
+                    "id, CURRENT_TIMESTAMP, name, country, team_id", "driver", firstDriver, driverCount, chunk);
+            System.out.printf("Inserted %d drivers%n", driverCount);
+            for (Map.Entry<String, String> index : DRIVER_INDEXES.entrySet()) {
+                statement.execute("CREATE INDEX IF NOT EXISTS " + index.getKey() + " ON driver (" + index.getValue() + ")");
+            }
+
+            statement.execute("ALTER SEQUENCE team_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM team)");
+            statement.execute("ALTER SEQUENCE driver_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM driver)");
+            statement.execute("ANALYZE");
+            System.out.printf("Database %s now holds %d teams and %d drivers, seeded in %.1f s%n", url,
+                    count(statement, "team"), count(statement, "driver"), (System.nanoTime() - start) / 1_000_000_000.0);
+        }
+    }
+
+    private static void insert(Statement statement, long count, long chunk, ChunkStatement sql) throws SQLException {
+        for (long from = 1; from <= count; from += chunk) {
+            long to = Math.min(count, from + chunk - 1);
+            statement.executeUpdate(sql.create(from, to));
+        }
+    }
+
+    /**
+     * Records the generated rows as the first version in the history table, as the migration does for existing rows.
+     */
+    private static void history(Statement statement, String target, String columns, String table, long firstId, long count,
+                                long chunk) throws SQLException {
+        insert(statement, count, chunk, (from, to) -> "INSERT INTO " + target + " SELECT " + columns + " FROM " + table
+                + " WHERE id BETWEEN " + (firstId - 1 + from) + " AND " + (firstId - 1 + to));
+    }
+
+    /**
+     * Returns an SQL expression selecting a country from the fixed list by the given numeric expression.
+     */
+    private static String country(String index) {
+        return COUNTRIES.stream()
+                .map(country -> "'" + country + "'")
+                .collect(Collectors.joining(", ", "ARRAY[", "][MOD(" + index + ", " + COUNTRIES.size() + ") + 1]"));
+    }
+
+    private static long maxId(Statement statement, String table) throws SQLException {
+        return queryLong(statement, "SELECT COALESCE(MAX(id), 0) FROM " + table);
+    }
+
+    private static long count(Statement statement, String table) throws SQLException {
+        return queryLong(statement, "SELECT COUNT(*) FROM " + table);
+    }
+
+    private static long queryLong(Statement statement, String sql) throws SQLException {
+        try (ResultSet result = statement.executeQuery(sql)) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+
+    private static String option(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+
+    @FunctionalInterface
+    private interface ChunkStatement {
+        String create(long from, long to);
+    }
+}
@@ -0,0 +1,111 @@
+package ch.wiss.project151formulaone;
+
+import org.h2.tools.Server;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiFunction;
+
+/**
+ * Compares the latency of the controller endpoints with the database reached through an H2 TCP server and with the
+ * database embedded in the application (the {@code embedded} profile).
+ *
+ * The TCP server runs in this JVM, so the difference between the modes is the loopback round trip and the
+ * serialization of every statement and result. Each mode starts the application once with the caches disabled, so
+ * every request reaches the database, warms it up, and then measures every endpoint on its own. Run with
+ * {@code ./mvnw -P benchmark,loadtest verify -Dloadtest.main=ch.wiss.project151formulaone.DatabaseModeLoadTest}.
+ *
+ * Options are {@code --clients} (default 4) and {@code --seconds} per endpoint (default 10).
+ */
+public class DatabaseModeLoadTest {
+    private static final Map<String, BiFunction<URI, ThreadLocalRandom, HttpRequest>> ENDPOINTS = Map.of(
+            "GET driver/{id}", (base, random) -> get(base.resolve("driver/" + (1 + random.nextInt(22)))),
+            "GET driver/all page", (base, random) -> get(base.resolve("driver/all?after=0&limit=100")),
+            "GET driver/search", (base, random) -> get(base.resolve("driver/search?country=Spain")),
+            "GET team/{id}/drivers", (base, random) -> get(base.resolve("team/" + (1 + random.nextInt(11)) + "/drivers")),
+            "PUT driver/{id}", (base, random) -> HttpRequest.newBuilder(base.resolve("driver/" + (1 + random.nextInt(22))))
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString("{\"name\":\"Driver " + random.nextInt(1000)
+                            + "\",\"country\":\"Country\",\"teamId\":" + (1 + random.nextInt(11)) + "}"))
+                    .timeout(Duration.ofSeconds(30))
+                    .build());
+
+    public static void main(String[] args) throws Exception {
+        // DevTools would restart the application in-process and run this main method a second time
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        int clients = option(args, "clients", 4);
+        int seconds = option(args, "seconds", 10);
+        Path directory = Files.createTempDirectory("database-mode");
+
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        Server server = Server.createTcpServer("-tcpPort", Integer.toString(port), "-ifNotExists",
+                "-baseDir", directory.resolve("tcp").toString()).start();
+        List<LoadGenerator.Result> results = new ArrayList<>();
+        try {
+            results.addAll(measure("tcp", clients, seconds,
+                    "--spring.datasource.url=jdbc:h2:tcp://localhost:" + port + "/formulaOne;QUERY_CACHE_SIZE=64"));
+            results.addAll(measure("embedded", clients, seconds,
+                    "--spring.profiles.active=embedded", "--formulaone.data-dir=" + directory.resolve("embedded")));
+        } finally {
+            server.stop();
+        }
+
+        System.out.println();
+        System.out.println(clients + " clients, " + Runtime.getRuntime().availableProcessors() + " CPUs");
+        results.forEach(System.out::println);
+    }
+
+    private static List<LoadGenerator.Result> measure(String mode, int clients, int seconds, String... args) throws Exception {
+        List<String> arguments = new ArrayList<>(List.of(args));
+        arguments.addAll(List.of("--server.port=0",
+                "--formulaone.cache.entity-spec=maximumSize=0",
+                "--formulaone.cache.page-spec=maximumSize=0",
+                "--formulaone.rate-limit.requests-per-second=0",
+                "--logging.level.root=WARN",
+                "--logging.level.ch.wiss.project151formulaone.RequestMetricsFilter=ERROR"));
+        List<LoadGenerator.Result> results = new ArrayList<>();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Project151FormulaOneApplication.class)
+                .run(arguments.toArray(String[]::new))) {
+            URI base = URI.create("http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() + "/api/");
+            List<BiFunction<URI, ThreadLocalRandom, HttpRequest>> all = List.copyOf(ENDPOINTS.values());
+            LoadGenerator load = new LoadGenerator();
+            load.run(mode + " warmup", clients, Duration.ofSeconds(seconds),
+                    random -> all.get(random.nextInt(all.size())).apply(base, random));
+            for (String endpoint : ENDPOINTS.keySet().stream().sorted().toList()) {
+                LoadGenerator.Result result = load.run(mode + " " + endpoint, clients, Duration.ofSeconds(seconds),
+                        random -> ENDPOINTS.get(endpoint).apply(base, random));
+                System.out.println(result);
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    private static HttpRequest get(URI uri) {
+        return HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build();
+    }
+
+    private static int option(String[] args, String name, int defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return Integer.parseInt(arg.substring(prefix.length()));
+            }
+        }
+        return defaultValue;
+    }
+}
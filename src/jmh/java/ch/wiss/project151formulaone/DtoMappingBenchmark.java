@@ -0,0 +1,37 @@
+package ch.wiss.project151formulaone;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the mapping of Driver and Team entities to their DTO records.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoMappingBenchmark {
+    private Driver driver;
+    private Team team;
+
+    @Setup
+    public void setUp() {
+        driver = new Driver("Max Verstappen", "Netherlands", 1L);
+        team = new Team();
+        team.setName("Red Bull Racing");
+        team.setCountry("Austria");
+    }
+
+    @Benchmark
+    public DriverDTO driverFromDomain() {
+        return DriverDTO.fromDomain(driver);
+    }
+
+    @Benchmark
+    public TeamDTO teamFromDomain() {
+        return TeamDTO.fromDomain(team);
+    }
+}
@@ -0,0 +1,90 @@
+package ch.wiss.project151formulaone;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares the encodings offered by the {@code /all} listings: the CPU time to write the drivers the way the
+ * ListingStreamer does, as JSON, CBOR and Smile, each uncompressed and gzip compressed. The payload size of every
+ * combination is printed once per trial, next to the timings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class FormatBenchmark {
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    @Param({"none", "gzip"})
+    public String compression;
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private ObjectMapper objectMapper;
+    private List<DriverDTO> drivers;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+        objectMapper = switch (format) {
+            case "cbor" -> json.copyWith(new CBORFactory());
+            case "smile" -> json.copyWith(new SmileFactory());
+            default -> json;
+        };
+        drivers = new ArrayList<>(rows);
+        for (long i = 1; i <= rows; i++) {
+            drivers.add(new DriverDTO(i, "Driver " + i, "Country " + (i % 50), i % 1000));
+        }
+
+        CountingOutputStream counter = new CountingOutputStream();
+        write(counter);
+        System.out.printf("%nPayload %s/%s, %d rows: %d bytes%n", format, compression, rows, counter.bytes);
+    }
+
+    @Benchmark
+    public long drivers() throws IOException {
+        CountingOutputStream counter = new CountingOutputStream();
+        write(counter);
+        return counter.bytes;
+    }
+
+    private void write(OutputStream out) throws IOException {
+        OutputStream target = compression.equals("gzip") ? new GZIPOutputStream(out, 8192) : out;
+        try (JsonGenerator generator = objectMapper.createGenerator(target)) {
+            generator.writeStartArray();
+            for (DriverDTO driver : drivers) {
+                generator.writeObject(driver);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package ch.wiss.project151formulaone;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Closed-loop HTTP load generator: a fixed number of clients, each on its own virtual thread, send one request after
+ * the other for a given duration and record the latency of every request.
+ */
+final class LoadGenerator {
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    /**
+     * The outcome of a load run.
+     *
+     * @param name       the name of the run
+     * @param requests   the number of completed requests
+     * @param errors     the number of requests that failed or were answered with a 5xx status
+     * @param seconds    the duration of the run in seconds
+     * @param latencies  the sorted latencies of all completed requests in nanoseconds
+     */
+    record Result(String name, long requests, long errors, double seconds, long[] latencies) {
+        double throughput() {
+            return requests / seconds;
+        }
+
+        double percentileMillis(double percentile) {
+            if (latencies.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+            return latencies[Math.max(0, index)] / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-28s %8d req %6d err %9.1f req/s  p50 %8.2f ms  p95 %8.2f ms  p99 %8.2f ms  max %8.2f ms",
+                    name, requests, errors, throughput(), percentileMillis(50), percentileMillis(95),
+                    percentileMillis(99), percentileMillis(100));
+        }
+    }
+
+    /**
+     * Runs the load and waits for all clients to finish.
+     *
+     * @param name     the name of the run
+     * @param clients  the number of concurrent clients
+     * @param duration how long the clients keep sending requests
+     * @param requests creates the next request, given a random source
+     * @return the result of the run
+     */
+    Result run(String name, int clients, Duration duration, Function<ThreadLocalRandom, HttpRequest> requests) throws Exception {
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        List<Future<long[]>> futures = new ArrayList<>(clients);
+        long[] errors = new long[clients];
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                int clientIndex = i;
+                futures.add(executor.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        HttpRequest request = requests.apply(ThreadLocalRandom.current());
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 500) {
+                                errors[clientIndex]++;
+                                continue;
+                            }
+                        } catch (IOException e) {
+                            errors[clientIndex]++;
+                            continue;
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - sent;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        long[] all = new long[0];
+        for (Future<long[]> future : futures) {
+            long[] latencies = future.get();
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + latencies.length);
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+        }
+        Arrays.sort(all);
+        return new Result(name, all.length, Arrays.stream(errors).sum(), seconds, all);
+    }
+}
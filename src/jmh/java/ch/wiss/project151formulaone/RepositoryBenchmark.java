@@ -0,0 +1,91 @@
+package ch.wiss.project151formulaone;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the DriverRepository and TeamRepository queries against an embedded in-memory H2 database,
+ * migrated and seeded by the Flyway scripts of the application.
+ *
+ * The entity queries are compared with the DTO projections the services use for reads. Run with
+ * {@code -Djmh.include=RepositoryBenchmark -Djmh.args="-prof gc"} to see the allocation per operation as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+    private ConfigurableApplicationContext context;
+    private DriverRepository drivers;
+    private TeamRepository teams;
+    private TransactionTemplate readOnlyTransaction;
+    private long[] driverIds;
+    private long[] teamIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = new SpringApplicationBuilder(Project151FormulaOneApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.hibernate.SQL=OFF",
+                        "--logging.level.org.hibernate.orm.jdbc.bind=OFF");
+        drivers = context.getBean(DriverRepository.class);
+        teams = context.getBean(TeamRepository.class);
+        readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+        driverIds = drivers.findAll().stream().mapToLong(Driver::getId).toArray();
+        teamIds = teams.findAll().stream().mapToLong(Team::getId).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Driver> driverFindById() {
+        return drivers.findById(driverIds[next++ % driverIds.length]);
+    }
+
+    @Benchmark
+    public List<Driver> driverFindAll() {
+        return drivers.findAll();
+    }
+
+    @Benchmark
+    public List<DriverDTO> driverFindAllMapped() {
+        return readOnlyTransaction.execute(status -> drivers.findAll().stream().map(DriverDTO::fromDomain).toList());
+    }
+
+    @Benchmark
+    public List<DriverDTO> driverStreamAllDTOs() {
+        return readOnlyTransaction.execute(status -> {
+            try (Stream<DriverDTO> rows = drivers.streamAllDTOs()) {
+                return rows.toList();
+            }
+        });
+    }
+
+    @Benchmark
+    public Optional<Team> teamFindById() {
+        return teams.findById(teamIds[next++ % teamIds.length]);
+    }
+
+    @Benchmark
+    public List<Team> teamFindAll() {
+        return teams.findAll();
+    }
+}
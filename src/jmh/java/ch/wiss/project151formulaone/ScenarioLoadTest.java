@@ -0,0 +1,207 @@
+package ch.wiss.project151formulaone;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiFunction;
+
+/**
+ * Runs fixed mixes of read and write requests against the REST endpoints and reports the throughput and latency
+ * percentiles of every mix, to validate performance changes on a single machine.
+ *
+ * Every scenario draws its requests from the same operations with its own weights: a read-heavy mix (90% reads), a
+ * mixed one (60% reads) and a write-heavy one (20% reads). Drivers and teams are picked at random from the whole
+ * database, so the caches see a realistic spread of keys. The scenarios run one after the other, each after a warmup
+ * with the same mix, against the same database, so later scenarios see the writes of earlier ones.
+ *
+ * By default the application is started in this JVM with the {@code embedded} profile, on a database seeded with the
+ * DataGenerator, without rate limit. Alternatively {@code --base} points the suite at an application that is already
+ * running, which should be started with {@code --formulaone.rate-limit.requests-per-second=0}, since all clients of
+ * the suite share one address. Run with
+ * {@code ./mvnw -P benchmark,loadtest verify -Dloadtest.main=ch.wiss.project151formulaone.ScenarioLoadTest}.
+ *
+ * Options are {@code --clients} (default 16), {@code --seconds} per scenario (default 30), {@code --warmup} seconds
+ * (default 10), {@code --scenarios} (default read-heavy,mixed,write-heavy), {@code --data-dir} (default ./data) and
+ * {@code --base} (for example http://localhost:8080/api/).
+ */
+public class ScenarioLoadTest {
+    private static final Map<String, Map<Operation, Integer>> SCENARIOS = Map.of(
+            "read-heavy", Map.of(
+                    Operation.GET_DRIVER, 50, Operation.GET_PAGE, 15, Operation.SEARCH, 15, Operation.GET_TEAM_DRIVERS, 10,
+                    Operation.PUT_DRIVER, 4, Operation.PATCH_DRIVER, 4, Operation.CREATE_DRIVER, 2),
+            "mixed", Map.of(
+                    Operation.GET_DRIVER, 30, Operation.GET_PAGE, 10, Operation.SEARCH, 10, Operation.GET_TEAM_DRIVERS, 10,
+                    Operation.PUT_DRIVER, 15, Operation.PATCH_DRIVER, 15, Operation.CREATE_DRIVER, 10),
+            "write-heavy", Map.of(
+                    Operation.GET_DRIVER, 10, Operation.GET_PAGE, 4, Operation.SEARCH, 3, Operation.GET_TEAM_DRIVERS, 3,
+                    Operation.PUT_DRIVER, 30, Operation.PATCH_DRIVER, 30, Operation.CREATE_DRIVER, 20));
+
+    /**
+     * The requests the scenarios are made of, created from the base URI, the data set and a random source.
+     */
+    private enum Operation {
+        GET_DRIVER((base, data, random) -> get(base.resolve("driver/" + data.driverId(random)))),
+        GET_PAGE((base, data, random) -> get(base.resolve("driver/all?after=" + (data.driverId(random) - 1) + "&limit=100"))),
+        SEARCH((base, data, random) -> get(base.resolve("driver/search?country=" + data.country(random).replace(" ", "%20") + "&limit=100"))),
+        GET_TEAM_DRIVERS((base, data, random) -> get(base.resolve("team/" + data.teamId(random) + "/drivers"))),
+        PUT_DRIVER((base, data, random) -> send(base.resolve("driver/" + data.driverId(random)), "PUT", "application/json",
+                "{\"name\":\"Driver " + random.nextInt(1_000_000) + "\",\"country\":\"" + data.country(random)
+                        + "\",\"teamId\":" + data.teamId(random) + "}")),
+        PATCH_DRIVER((base, data, random) -> send(base.resolve("driver/" + data.driverId(random)), "PATCH",
+                MergePatch.APPLICATION_MERGE_PATCH_JSON, "{\"country\":\"" + data.country(random) + "\"}")),
+        CREATE_DRIVER((base, data, random) -> send(base.resolve("driver"), "POST", "application/json",
+                "{\"name\":\"Driver " + random.nextInt(1_000_000) + "\",\"country\":\"" + data.country(random)
+                        + "\",\"teamId\":" + data.teamId(random) + "}"));
+
+        final RequestFactory factory;
+
+        Operation(RequestFactory factory) {
+            this.factory = factory;
+        }
+    }
+
+    @FunctionalInterface
+    private interface RequestFactory {
+        HttpRequest create(URI base, DataSet data, ThreadLocalRandom random);
+    }
+
+    /**
+     * The drivers and teams in the database, as far as the scenarios need to know them.
+     *
+     * @param drivers   the number of drivers, whose IDs are assumed to be dense from 1
+     * @param teamIds   the IDs of all teams
+     * @param countries the countries of the drivers
+     */
+    private record DataSet(long drivers, long[] teamIds, String[] countries) {
+        long driverId(ThreadLocalRandom random) {
+            return 1 + random.nextLong(drivers);
+        }
+
+        long teamId(ThreadLocalRandom random) {
+            return teamIds[random.nextInt(teamIds.length)];
+        }
+
+        String country(ThreadLocalRandom random) {
+            return countries[random.nextInt(countries.length)];
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        // DevTools would restart the application in-process and run this main method a second time
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        int clients = Integer.parseInt(option(args, "clients", "16"));
+        int seconds = Integer.parseInt(option(args, "seconds", "30"));
+        int warmup = Integer.parseInt(option(args, "warmup", "10"));
+        List<String> scenarios = List.of(option(args, "scenarios", "read-heavy,mixed,write-heavy").split(","));
+        String base = option(args, "base", null);
+
+        if (base != null) {
+            run(URI.create(base), clients, seconds, warmup, scenarios);
+            return;
+        }
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Project151FormulaOneApplication.class)
+                .run("--spring.profiles.active=embedded",
+                        "--formulaone.data-dir=" + option(args, "data-dir", "./data"),
+                        "--server.port=0",
+                        "--formulaone.rate-limit.requests-per-second=0",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.hibernate.orm.jdbc.batch=OFF",
+                        "--logging.level.ch.wiss.project151formulaone.RequestMetricsFilter=ERROR")) {
+            run(URI.create("http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() + "/api/"),
+                    clients, seconds, warmup, scenarios);
+        }
+    }
+
+    private static void run(URI base, int clients, int seconds, int warmup, List<String> scenarios) throws Exception {
+        DataSet data = load(base);
+        System.out.printf("%d drivers, %d teams, %d countries%n", data.drivers(), data.teamIds().length, data.countries().length);
+
+        LoadGenerator load = new LoadGenerator();
+        List<LoadGenerator.Result> results = new ArrayList<>();
+        for (String scenario : scenarios) {
+            List<Operation> mix = mix(SCENARIOS.get(scenario));
+            BiFunction<URI, ThreadLocalRandom, HttpRequest> requests = (uri, random) ->
+                    mix.get(random.nextInt(mix.size())).factory.create(uri, data, random);
+            load.run(scenario + " warmup", clients, Duration.ofSeconds(warmup), random -> requests.apply(base, random));
+            LoadGenerator.Result result = load.run(scenario, clients, Duration.ofSeconds(seconds), random -> requests.apply(base, random));
+            System.out.println(result);
+            results.add(result);
+        }
+
+        System.out.println();
+        System.out.println(clients + " clients, " + data.drivers() + " drivers, " + Runtime.getRuntime().availableProcessors() + " CPUs");
+        results.forEach(System.out::println);
+    }
+
+    /**
+     * Expands the weights of a scenario into a list with one entry per weight unit, to draw operations from.
+     */
+    private static List<Operation> mix(Map<Operation, Integer> weights) {
+        if (weights == null) {
+            throw new IllegalArgumentException("Unknown scenario, known are " + SCENARIOS.keySet());
+        }
+        List<Operation> mix = new ArrayList<>();
+        weights.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                mix.add(operation);
+            }
+        });
+        return mix;
+    }
+
+    /**
+     * Looks up the drivers and teams through the statistics endpoints, which answer from memory.
+     */
+    private static DataSet load(URI base) throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        HttpClient client = HttpClient.newHttpClient();
+        JsonNode perTeam = mapper.readTree(client.send(get(base.resolve("statistics/drivers-per-team")), HttpResponse.BodyHandlers.ofString()).body());
+        JsonNode perCountry = mapper.readTree(client.send(get(base.resolve("statistics/drivers-per-country")), HttpResponse.BodyHandlers.ofString()).body());
+
+        long drivers = 0;
+        List<Long> teamIds = new ArrayList<>();
+        for (JsonNode count : perTeam) {
+            drivers += count.get("drivers").asLong();
+            if (!count.get("teamId").isNull()) {
+                teamIds.add(count.get("teamId").asLong());
+            }
+        }
+        List<String> countries = new ArrayList<>();
+        perCountry.fieldNames().forEachRemaining(countries::add);
+        return new DataSet(drivers, teamIds.stream().mapToLong(Long::longValue).toArray(), countries.toArray(String[]::new));
+    }
+
+    private static HttpRequest get(URI uri) {
+        return HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build();
+    }
+
+    private static HttpRequest send(URI uri, String method, String contentType, String body) {
+        return HttpRequest.newBuilder(uri)
+                .header("Content-Type", contentType)
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .timeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    private static String option(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,74 @@
+package ch.wiss.project151formulaone;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Jackson serialization of the {@code /all} payloads.
+ *
+ * {@code list} serializes a fully built list in one call, like the listings did before they were streamed, while
+ * {@code stream} writes one element at a time through a JsonGenerator, like the ListingStreamer does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SerializationBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private ObjectMapper objectMapper;
+    private List<DriverDTO> drivers;
+    private List<TeamDTO> teams;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        drivers = new ArrayList<>(rows);
+        teams = new ArrayList<>(rows);
+        for (long i = 1; i <= rows; i++) {
+            drivers.add(new DriverDTO(i, "Driver " + i, "Country " + (i % 50), i % 1000));
+            teams.add(new TeamDTO(i, "Team " + i, "Country " + (i % 50)));
+        }
+    }
+
+    @Benchmark
+    public void driverList() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), drivers);
+    }
+
+    @Benchmark
+    public void driverStream() throws IOException {
+        stream(drivers);
+    }
+
+    @Benchmark
+    public void teamList() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), teams);
+    }
+
+    @Benchmark
+    public void teamStream() throws IOException {
+        stream(teams);
+    }
+
+    private void stream(List<?> values) throws IOException {
+        try (JsonGenerator generator = objectMapper.createGenerator(OutputStream.nullOutputStream())) {
+            generator.writeStartArray();
+            for (Object value : values) {
+                generator.writeObject(value);
+            }
+            generator.writeEndArray();
+        }
+    }
+}
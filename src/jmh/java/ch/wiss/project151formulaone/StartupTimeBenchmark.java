@@ -0,0 +1,112 @@
+package ch.wiss.project151formulaone;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Measures the startup time of the packaged application with each of the fast-startup measures added in turn.
+ *
+ * Every variant is started several times in a fresh JVM against the same file database, which is migrated once up
+ * front, as for a replica joining a running deployment. The startup time is the "process running for" time Spring
+ * Boot logs once the application has started, and the median of the runs is reported. Build with the fast-startup
+ * Maven profile first, so the jar contains the AOT classes and the AppCDS archive exists. Run with
+ * {@code ./mvnw -P fast-startup,benchmark,loadtest verify -Dloadtest.main=ch.wiss.project151formulaone.StartupTimeBenchmark}.
+ *
+ * Options are {@code --runs} (default 5) and {@code --jar} (default the jar in target).
+ */
+public class StartupTimeBenchmark {
+    private static final Pattern STARTED = Pattern.compile("Started \\S+ in [0-9.]+ seconds \\(process running for ([0-9.]+)\\)");
+
+    public static void main(String[] args) throws Exception {
+        int runs = Integer.parseInt(option(args, "runs", "5"));
+        Path jar = Path.of(option(args, "jar", "target/project151FormulaOne-0.0.1-SNAPSHOT.jar"));
+        Path archive = jar.resolveSibling("application.jsa");
+        Path database = Files.createTempDirectory("startup").resolve("formulaOne");
+        List<String> common = List.of("--server.port=0", "--spring.datasource.url=jdbc:h2:file:" + database,
+                "--logging.level.org.hibernate.SQL=OFF", "--logging.level.org.hibernate.orm.jdbc.bind=OFF");
+
+        start(jar, List.of(), concat(common, "--spring.profiles.active=fast-startup"));
+
+        List<String> results = new ArrayList<>();
+        results.add(measure("default", runs, jar, List.of(), common));
+        results.add(measure("fast-startup profile", runs, jar, List.of(),
+                concat(common, "--spring.profiles.active=fast-startup")));
+        results.add(measure("fast-startup profile + AOT", runs, jar, List.of("-Dspring.aot.enabled=true"),
+                concat(common, "--spring.profiles.active=fast-startup")));
+        if (Files.exists(archive)) {
+            results.add(measure("fast-startup profile + AOT + AppCDS", runs, jar,
+                    List.of("-Dspring.aot.enabled=true", "-XX:SharedArchiveFile=" + archive, "-Xlog:cds=off"),
+                    concat(common, "--spring.profiles.active=fast-startup")));
+        } else {
+            results.add("no AppCDS archive at " + archive + ", build with the fast-startup profile");
+        }
+
+        System.out.println();
+        System.out.println("Median startup time of " + runs + " runs, " + Runtime.getRuntime().availableProcessors() + " CPUs");
+        results.forEach(System.out::println);
+    }
+
+    private static String measure(String name, int runs, Path jar, List<String> jvmArgs, List<String> appArgs) throws Exception {
+        double[] seconds = new double[runs];
+        for (int i = 0; i < runs; i++) {
+            seconds[i] = start(jar, jvmArgs, appArgs);
+            System.out.printf("%s, run %d: %.3f s%n", name, i + 1, seconds[i]);
+        }
+        Arrays.sort(seconds);
+        return String.format("%-40s %.3f s (min %.3f s, max %.3f s)", name, seconds[runs / 2], seconds[0], seconds[runs - 1]);
+    }
+
+    /**
+     * Starts the application, waits until it has started and stops it again.
+     *
+     * @return the time from the start of the JVM until the application had started, in seconds
+     */
+    private static double start(Path jar, List<String> jvmArgs, List<String> appArgs) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-jar");
+        command.add(jar.toString());
+        command.addAll(appArgs);
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = output.readLine()) != null) {
+                Matcher started = STARTED.matcher(line);
+                if (started.find()) {
+                    return Double.parseDouble(started.group(1));
+                }
+            }
+            throw new IllegalStateException("Application exited with status " + process.waitFor() + " before it had started");
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static List<String> concat(List<String> args, String... more) {
+        return Stream.concat(args.stream(), Stream.of(more)).toList();
+    }
+
+    private static String option(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,95 @@
+package ch.wiss.project151formulaone;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares request handling on platform threads with request handling on virtual threads.
+ *
+ * The application is started twice in this JVM, once per mode, with the same connection pool size and the caches
+ * disabled so every request reaches the database. Each run first warms up and then lets many concurrent clients fetch
+ * single drivers and pages of drivers. Run with
+ * {@code ./mvnw -P benchmark,loadtest verify -Dloadtest.args="--clients=1000 --seconds=30"}.
+ *
+ * Options are {@code --clients} (default 400, twice the size of the Tomcat thread pool), {@code --seconds}
+ * (default 20), {@code --pool-size} (default 10) and {@code --db-url} (default an in-memory database). Pointing
+ * {@code --db-url} at a database reached over the network shows the effect of blocking JDBC calls best.
+ */
+public class ThreadModeLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        // DevTools would restart the application in-process and run this main method a second time
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        int clients = option(args, "clients", 400);
+        int seconds = option(args, "seconds", 20);
+        int poolSize = option(args, "pool-size", 10);
+        String dbUrl = option(args, "db-url", null);
+
+        List<LoadGenerator.Result> results = new ArrayList<>();
+        for (boolean virtual : new boolean[]{false, true}) {
+            String mode = virtual ? "virtual" : "platform";
+            try (ConfigurableApplicationContext context = start(virtual, poolSize,
+                    dbUrl != null ? dbUrl : "jdbc:h2:mem:loadtest-" + mode + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")) {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                long[] driverIds = context.getBean(DriverRepository.class).findAll().stream().mapToLong(Driver::getId).toArray();
+                URI base = URI.create("http://localhost:" + port + "/api/driver/");
+
+                LoadGenerator load = new LoadGenerator();
+                load.run(mode + " warmup", Math.min(clients, 50), Duration.ofSeconds(5), random -> request(base, driverIds, random));
+                LoadGenerator.Result result = load.run(mode + " (" + clients + " clients)", clients,
+                        Duration.ofSeconds(seconds), random -> request(base, driverIds, random));
+                System.out.println(result);
+                results.add(result);
+            }
+        }
+
+        System.out.println();
+        System.out.println("Connection pool size " + poolSize + ", " + Runtime.getRuntime().availableProcessors() + " CPUs");
+        results.forEach(System.out::println);
+    }
+
+    private static HttpRequest request(URI base, long[] driverIds, ThreadLocalRandom random) {
+        URI uri = random.nextInt(10) == 0
+                ? base.resolve("all?after=0&limit=100")
+                : base.resolve(Long.toString(driverIds[random.nextInt(driverIds.length)]));
+        return HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build();
+    }
+
+    private static ConfigurableApplicationContext start(boolean virtual, int poolSize, String dbUrl) {
+        return new SpringApplicationBuilder(Project151FormulaOneApplication.class)
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtual,
+                        "--spring.datasource.url=" + dbUrl,
+                        "--spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                        "--formulaone.cache.entity-spec=maximumSize=0",
+                        "--formulaone.cache.page-spec=maximumSize=0",
+                        "--formulaone.rate-limit.requests-per-second=0",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.hibernate.SQL=OFF",
+                        "--logging.level.org.hibernate.orm.jdbc.bind=OFF",
+                        "--logging.level.ch.wiss.project151formulaone.RequestMetricsFilter=ERROR");
+    }
+
+    private static int option(String[] args, String name, int defaultValue) {
+        String value = option(args, name, (String) null);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static String option(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+}
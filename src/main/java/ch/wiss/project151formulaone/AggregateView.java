@@ -0,0 +1,177 @@
+package ch.wiss.project151formulaone;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The AggregateView is an in-memory materialized view of the driver and team counts per team and per country.
+ *
+ * The counts are loaded once at startup with a few group by queries. After that they are maintained incrementally
+ * from the DriverChange and TeamChange events: the state before a change is subtracted and the state after it is
+ * added, once the transaction has committed. Reading the counts never touches the database. The result of a read is
+ * kept as an immutable snapshot until the next change, so repeated reads cost the same no matter how many drivers and
+ * teams there are. Like the CollectionVersions, the view does not notice writes that bypass the services, except for
+ * imports, after which the counts are loaded again.
+ *
+ * The view is created eagerly even with lazy initialization: if it were created by the first change event, the
+ * counts loaded at that point would already contain the change, and applying the event would count it twice.
+ */
+@Component
+@Lazy(false)
+public class AggregateView {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final DriverRepository drivers;
+    private final TeamRepository teams;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final Map<Long, TeamDriverCount> driversPerTeam = new HashMap<>();
+    private final Map<String, Long> driversPerCountry = new HashMap<>();
+    private final Map<String, Long> teamsPerCountry = new HashMap<>();
+    private long driversWithoutTeam;
+
+    /**
+     * The counts as returned to readers, or null if they have changed since the last read.
+     */
+    private volatile Snapshot snapshot;
+
+    public AggregateView(DriverRepository drivers, TeamRepository teams, PlatformTransactionManager transactionManager) {
+        this.drivers = drivers;
+        this.teams = teams;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public synchronized void load() {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            driversPerTeam.clear();
+            driversPerCountry.clear();
+            teamsPerCountry.clear();
+            teams.countDriversPerTeam().forEach(count -> driversPerTeam.put(count.teamId(), count));
+            drivers.countPerCountry().forEach(count -> driversPerCountry.put(count.country(), count.count()));
+            teams.countPerCountry().forEach(count -> teamsPerCountry.put(count.country(), count.count()));
+            driversWithoutTeam = drivers.countByTeamIdIsNull();
+        });
+        snapshot = null;
+        log.info("Loaded counts of {} teams, {} driver countries and {} team countries",
+                driversPerTeam.size(), driversPerCountry.size(), teamsPerCountry.size());
+    }
+
+    @EventListener
+    public void onDatasetImported(DatasetImported imported) {
+        load();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onDriverChange(DriverChange change) {
+        if (change.before() != null) {
+            addDriver(change.before(), -1);
+        }
+        if (change.after() != null) {
+            addDriver(change.after(), 1);
+        }
+        snapshot = null;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onTeamChange(TeamChange change) {
+        if (change.before() != null) {
+            add(teamsPerCountry, change.before().country(), -1);
+        }
+        if (change.after() != null) {
+            add(teamsPerCountry, change.after().country(), 1);
+            TeamDriverCount count = driversPerTeam.get(change.id());
+            driversPerTeam.put(change.id(), new TeamDriverCount(change.id(), change.after().name(), count == null ? 0 : count.drivers()));
+        } else {
+            driversPerTeam.remove(change.id());
+        }
+        snapshot = null;
+    }
+
+    /**
+     * Returns the number of drivers of every team, ordered by team ID. The drivers without a team are counted in a
+     * last entry without team ID, if there are any.
+     *
+     * @return the driver counts per team
+     */
+    public List<TeamDriverCount> driversPerTeam() {
+        return snapshot().driversPerTeam();
+    }
+
+    /**
+     * Returns the number of drivers of every country that has drivers.
+     *
+     * @return the driver counts by country, ordered by country
+     */
+    public Map<String, Long> driversPerCountry() {
+        return snapshot().driversPerCountry();
+    }
+
+    /**
+     * Returns the number of teams of every country that has teams.
+     *
+     * @return the team counts by country, ordered by country
+     */
+    public Map<String, Long> teamsPerCountry() {
+        return snapshot().teamsPerCountry();
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                List<TeamDriverCount> perTeam = new ArrayList<>(driversPerTeam.values());
+                perTeam.sort(Comparator.comparing(TeamDriverCount::teamId));
+                if (driversWithoutTeam > 0) {
+                    perTeam.add(new TeamDriverCount(null, null, driversWithoutTeam));
+                }
+                snapshot = new Snapshot(List.copyOf(perTeam),
+                        Collections.unmodifiableMap(new TreeMap<>(driversPerCountry)),
+                        Collections.unmodifiableMap(new TreeMap<>(teamsPerCountry)));
+            }
+            return snapshot;
+        }
+    }
+
+    private void addDriver(DriverDTO driver, int delta) {
+        add(driversPerCountry, driver.country(), delta);
+        if (driver.teamId() == null) {
+            driversWithoutTeam += delta;
+            return;
+        }
+        TeamDriverCount count = driversPerTeam.get(driver.teamId());
+        driversPerTeam.put(driver.teamId(), count == null
+                ? new TeamDriverCount(driver.teamId(), null, delta)
+                : new TeamDriverCount(driver.teamId(), count.teamName(), count.drivers() + delta));
+    }
+
+    private static void add(Map<String, Long> counts, String country, int delta) {
+        counts.compute(country, (key, count) -> {
+            long updated = (count == null ? 0 : count) + delta;
+            return updated == 0 ? null : updated;
+        });
+    }
+
+    private record Snapshot(List<TeamDriverCount> driversPerTeam, Map<String, Long> driversPerCountry,
+                            Map<String, Long> teamsPerCountry) {
+    }
+}
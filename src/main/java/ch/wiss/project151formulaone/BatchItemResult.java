@@ -0,0 +1,19 @@
+package ch.wiss.project151formulaone;
+
+/**
+ * The BatchItemResult class represents the outcome of a single operation of a {@link BatchRequest}.
+ *
+ * @param operation the kind of operation
+ * @param index     the position of the operation within its list in the request
+ * @param id        the ID of the affected entity, or null if none could be determined
+ * @param status    the HTTP status code describing the outcome of the operation
+ * @param message   an error message, or null if the operation succeeded
+ */
+public record BatchItemResult(Operation operation, int index, Long id, int status, String message) {
+    /**
+     * The kinds of operations contained in a batch.
+     */
+    public enum Operation {
+        CREATE, UPDATE, DELETE
+    }
+}
@@ -0,0 +1,26 @@
+package ch.wiss.project151formulaone;
+
+import java.util.List;
+
+/**
+ * The BatchRequest class represents a set of create, update and delete operations that are executed together
+ * in a single transaction.
+ *
+ * @param create the DTOs of the entities to create, their IDs must be null
+ * @param update the DTOs of the entities to update, their IDs must be set
+ * @param delete the IDs of the entities to delete
+ */
+public record BatchRequest<T>(List<T> create, List<T> update, List<Long> delete) {
+    /**
+     * Returns the total number of operations contained in this batch.
+     *
+     * @return the number of create, update and delete operations
+     */
+    public int size() {
+        return sizeOf(create) + sizeOf(update) + sizeOf(delete);
+    }
+
+    private static int sizeOf(List<?> operations) {
+        return operations == null ? 0 : operations.size();
+    }
+}
@@ -0,0 +1,52 @@
+package ch.wiss.project151formulaone;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configures the in-process Caffeine caches used for driver and team reads.
+ *
+ * Single entities and keyset pages are kept in separate caches so they can be bounded independently. Every cache
+ * records statistics, which are published as {@code cache.gets}, {@code cache.puts} and {@code cache.evictions}
+ * metrics on the actuator metrics endpoint. The cache manager is transaction aware, so puts and evictions issued
+ * inside a write transaction only take effect once it has committed.
+ */
+@Configuration
+public class CacheConfiguration {
+    /**
+     * The cache holding DriverDTO objects by driver ID.
+     */
+    public static final String DRIVERS = "drivers";
+
+    /**
+     * The cache holding keyset pages of DriverDTO objects.
+     */
+    public static final String DRIVER_PAGES = "driverPages";
+
+    /**
+     * The cache holding TeamDTO objects by team ID.
+     */
+    public static final String TEAMS = "teams";
+
+    /**
+     * The cache holding keyset pages of TeamDTO objects.
+     */
+    public static final String TEAM_PAGES = "teamPages";
+
+    @Bean
+    public CacheManager cacheManager(@Value("${formulaone.cache.entity-spec}") String entitySpec,
+                                     @Value("${formulaone.cache.page-spec}") String pageSpec) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setAllowNullValues(false);
+        cacheManager.registerCustomCache(DRIVERS, Caffeine.from(entitySpec).recordStats().build());
+        cacheManager.registerCustomCache(TEAMS, Caffeine.from(entitySpec).recordStats().build());
+        cacheManager.registerCustomCache(DRIVER_PAGES, Caffeine.from(pageSpec).recordStats().build());
+        cacheManager.registerCustomCache(TEAM_PAGES, Caffeine.from(pageSpec).recordStats().build());
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
@@ -0,0 +1,16 @@
+package ch.wiss.project151formulaone;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * The ChangeEvent class represents a committed change as it is sent by the change feed.
+ *
+ * @param sequence the position of the change in the feed, increasing by one per change
+ * @param entity   the kind of entity that changed, "driver" or "team"
+ * @param kind     the kind of change
+ * @param id       the ID of the changed entity
+ * @param data     the entity after the change, omitted for deletions
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ChangeEvent(long sequence, String entity, ChangeKind kind, long id, Object data) {
+}
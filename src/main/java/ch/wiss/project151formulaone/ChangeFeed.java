@@ -0,0 +1,240 @@
+package ch.wiss.project151formulaone;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The ChangeFeed keeps the most recent committed changes of drivers and teams and pushes them to server-sent event
+ * subscribers.
+ *
+ * Changes are numbered with an increasing sequence and kept in a ring buffer of fixed size, so memory use does not
+ * depend on how far behind a subscriber is. A subscriber only holds its position in the buffer. Whenever there is
+ * something to send, a virtual thread delivers the pending changes to that subscriber, so idle subscribers cost no
+ * thread and a slow subscriber only delays itself. A subscriber that falls behind by more than the buffer size, or
+ * that resumes from an unknown position, receives a {@code reset} event and should re-read the listings. An import
+ * writes no individual changes, so it makes every earlier position unknown and all subscribers receive a reset.
+ *
+ * Event IDs consist of the start time of the application and the sequence, so clients can resume after a reconnect
+ * with {@code Last-Event-ID}, and positions from before a restart are recognized as unknown. The feed is created
+ * eagerly even with lazy initialization, so the scheduled heartbeat runs.
+ */
+@Component
+@Lazy(false)
+public class ChangeFeed {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final ChangeEvent[] buffer;
+    private final long timeoutMillis;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * The sequence of the most recent change, guarded by the buffer.
+     */
+    private long latest;
+
+    /**
+     * The sequence of the last import, before which no changes are known, guarded by the buffer.
+     */
+    private long imported;
+
+    public ChangeFeed(@Value("${formulaone.changes.buffer-size}") int bufferSize,
+                      @Value("${formulaone.changes.timeout-ms}") long timeoutMillis,
+                      MeterRegistry registry) {
+        this.buffer = new ChangeEvent[bufferSize];
+        this.timeoutMillis = timeoutMillis;
+        Gauge.builder("formulaone.changes.subscribers", subscribers, Set::size)
+                .description("Subscribers of the change feed")
+                .register(registry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverChange(DriverChange change) {
+        append("driver", change.kind(), change.id(), change.after());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTeamChange(TeamChange change) {
+        append("team", change.kind(), change.id(), change.after());
+    }
+
+    @EventListener
+    public void onDatasetImported(DatasetImported imported) {
+        synchronized (buffer) {
+            latest++;
+            buffer[(int) (latest % buffer.length)] = null;
+            this.imported = latest;
+        }
+        subscribers.forEach(Subscriber::schedule);
+    }
+
+    /**
+     * Subscribes to the changes after the given position.
+     *
+     * @param lastEventId the ID of the last event the client has seen, or null to only receive new changes
+     * @return the SseEmitter the changes are sent to
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, lastEventId == null ? latest() : position(lastEventId));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> {
+            subscribers.remove(subscriber);
+            emitter.complete();
+        });
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        subscriber.schedule();
+        return emitter;
+    }
+
+    /**
+     * Sends a comment to every subscriber, so connections that were closed by the client are detected and idle
+     * connections are not dropped by proxies.
+     */
+    @Scheduled(fixedDelayString = "${formulaone.changes.heartbeat-interval-ms}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.heartbeatDue = true;
+            subscriber.schedule();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        senders.shutdown();
+    }
+
+    private void append(String entity, ChangeKind kind, long id, Object data) {
+        synchronized (buffer) {
+            latest++;
+            buffer[(int) (latest % buffer.length)] = new ChangeEvent(latest, entity, kind, id, data);
+        }
+        subscribers.forEach(Subscriber::schedule);
+    }
+
+    private long latest() {
+        synchronized (buffer) {
+            return latest;
+        }
+    }
+
+    /**
+     * Returns the changes after the given sequence, at most a buffer full.
+     *
+     * @return the changes, or null if changes after the given sequence are no longer (or not) known
+     */
+    private List<ChangeEvent> since(long sequence) {
+        synchronized (buffer) {
+            if (sequence < imported || sequence < latest - buffer.length || sequence > latest) {
+                return null;
+            }
+            List<ChangeEvent> changes = new ArrayList<>((int) (latest - sequence));
+            for (long next = sequence + 1; next <= latest; next++) {
+                changes.add(buffer[(int) (next % buffer.length)]);
+            }
+            return changes;
+        }
+    }
+
+    private String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    /**
+     * Parses an event ID, or a plain sequence, into a sequence. Event IDs from before a restart result in -1.
+     */
+    private long position(String eventId) {
+        int separator = eventId.indexOf('-');
+        try {
+            if (separator < 0) {
+                return Long.parseLong(eventId.trim());
+            }
+            return eventId.substring(0, separator).equals(epoch) ? Long.parseLong(eventId.substring(separator + 1)) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        volatile boolean heartbeatDue;
+        long position;
+
+        Subscriber(SseEmitter emitter, long position) {
+            this.emitter = emitter;
+            this.position = position;
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                senders.execute(this::send);
+            }
+        }
+
+        private void send() {
+            try {
+                List<ChangeEvent> changes;
+                while ((changes = since(position)) == null || !changes.isEmpty()) {
+                    if (changes == null) {
+                        reset();
+                        continue;
+                    }
+                    for (ChangeEvent change : changes) {
+                        emitter.send(SseEmitter.event()
+                                .id(eventId(change.sequence()))
+                                .name(change.entity())
+                                .data(change, MediaType.APPLICATION_JSON));
+                        position = change.sequence();
+                    }
+                }
+                if (heartbeatDue) {
+                    heartbeatDue = false;
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Dropping change feed subscriber: {}", e.getMessage());
+                subscribers.remove(this);
+                emitter.completeWithError(e);
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+            if (latest() > position || heartbeatDue) {
+                schedule();
+            }
+        }
+
+        private void reset() throws IOException {
+            position = latest();
+            emitter.send(SseEmitter.event()
+                    .id(eventId(position))
+                    .name("reset")
+                    .data(Map.of("sequence", position), MediaType.APPLICATION_JSON));
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package ch.wiss.project151formulaone;
+
+/**
+ * The kinds of changes published for drivers and teams.
+ */
+public enum ChangeKind {
+    CREATE, UPDATE, DELETE
+}
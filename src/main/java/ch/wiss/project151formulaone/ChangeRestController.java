@@ -0,0 +1,40 @@
+package ch.wiss.project151formulaone;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Rest controller for the change feed of drivers and teams.
+ */
+@RestController
+@RequestMapping("api/changes")
+public class ChangeRestController {
+    final ChangeFeed changes;
+
+    public ChangeRestController(ChangeFeed changes) {
+        this.changes = changes;
+    }
+
+    /**
+     * Streams every committed create, update and delete of drivers and teams as server-sent events.
+     * Each event is named after the entity ("driver" or "team") and carries a ChangeEvent as data. A client that
+     * reconnects with the {@code Last-Event-ID} header, or the {@code since} parameter, receives the changes it has
+     * missed. If they are no longer available, a "reset" event is sent first, after which the client should re-read the
+     * listings.
+     *
+     * @param lastEventId the ID of the last event received before the reconnect, sent by the browser automatically
+     * @param since       the ID of the last event received, for clients that cannot set headers
+     * @return the SseEmitter streaming the changes
+     * @see ChangeEvent
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                @RequestParam(required = false) String since) {
+        return changes.subscribe(lastEventId != null ? lastEventId : since);
+    }
+}
@@ -0,0 +1,68 @@
+package ch.wiss.project151formulaone;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * The CircuitBreakerFilter guards the writes to drivers and teams with the DatabaseCircuitBreaker.
+ *
+ * While the breaker is open, every request that is not a GET, HEAD or OPTIONS request to the driver, team and import
+ * endpoints is answered with SERVICE_UNAVAILABLE and a Retry-After header, without reaching the controller, instead of
+ * waiting for the database. While the breaker is closed, a write that fails because the database cannot be reached,
+ * as told by DatabaseCircuitBreaker.isFailure, is recorded as a failure. Successful writes are not recorded as
+ * successes, since asynchronous updates succeed without reaching the database.
+ */
+@Component
+public class CircuitBreakerFilter extends OncePerRequestFilter {
+    private final DatabaseCircuitBreaker breaker;
+
+    public CircuitBreakerFilter(DatabaseCircuitBreaker breaker) {
+        this.breaker = breaker;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String method = request.getMethod();
+        if (HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) || HttpMethod.OPTIONS.matches(method)) {
+            return true;
+        }
+        String uri = request.getRequestURI();
+        return !(uri.startsWith("/api/driver") || uri.startsWith("/api/team") || uri.startsWith("/api/import"));
+    }
+
+    @Override
+    protected void doFilterInternal(@NotNull HttpServletRequest request, @NotNull HttpServletResponse response,
+                                    @NotNull FilterChain filterChain) throws ServletException, IOException {
+        if (breaker.isOpen()) {
+            breaker.recordRejectedWrite();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(breaker.retryAfterSeconds()));
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write("Database unavailable");
+            return;
+        }
+        long call = breaker.startCall();
+        try {
+            filterChain.doFilter(request, response);
+        } catch (ServletException | RuntimeException e) {
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (DatabaseCircuitBreaker.isFailure(cause)) {
+                    breaker.recordFailure(call);
+                    break;
+                }
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ch.wiss.project151formulaone;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The CollectionVersions keep a change counter for the driver and the team collection.
+ *
+ * Every DriverChange or TeamChange bumps the counter of its collection once the transaction has committed, so a
+ * listing read after the bump always reflects the write. The counters are combined with the start time of the
+ * application into ETags for the listings, which lets clients poll with {@code If-None-Match} and receive
+ * {@code 304 Not Modified} without the listing being queried. The ETags are weak: the same listing is sent gzip
+ * compressed or not depending on the client, and Tomcat never compresses a response carrying a strong ETag.
+ *
+ * The counters live in memory, so the ETags assume a single instance of the application writing to the database.
+ * Writes that bypass the services (for example manual SQL, or a second instance) are noticed by the ReadReplica when
+ * it next refreshes, which bumps the counters of the collections that differed; imports bump both counters. Deriving
+ * the ETags from the tables instead would take a scan of the versions of all rows, more than a second per million
+ * drivers after every write, for each conditional request.
+ */
+@Component
+public class CollectionVersions {
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong drivers = new AtomicLong();
+    private final AtomicLong teams = new AtomicLong();
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverChange(DriverChange change) {
+        drivers.incrementAndGet();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTeamChange(TeamChange change) {
+        teams.incrementAndGet();
+    }
+
+    @EventListener
+    public void onDatasetImported(DatasetImported imported) {
+        driversModified();
+        teamsModified();
+    }
+
+    /**
+     * Bumps the counter of the driver collection after drivers were written without a DriverChange.
+     */
+    public void driversModified() {
+        drivers.incrementAndGet();
+    }
+
+    /**
+     * Bumps the counter of the team collection after teams were written without a TeamChange.
+     */
+    public void teamsModified() {
+        teams.incrementAndGet();
+    }
+
+    /**
+     * Returns the ETag of a listing of drivers.
+     *
+     * @param representation distinguishes the representations of the same listing, for example "json" and "ndjson"
+     * @return the weak ETag, including its quotes
+     */
+    public String driversETag(String representation) {
+        return "W/\"d" + epoch + "." + drivers.get() + "-" + representation + "\"";
+    }
+
+    /**
+     * Returns the ETag of a listing of teams.
+     *
+     * @param representation distinguishes the representations of the same listing, for example "json" and "ndjson"
+     * @return the weak ETag, including its quotes
+     */
+    public String teamsETag(String representation) {
+        return "W/\"t" + epoch + "." + teams.get() + "-" + representation + "\"";
+    }
+
+    /**
+     * Returns the ETag of a listing of teams together with their drivers, which changes with either collection.
+     *
+     * @param representation distinguishes the representations of the same listing, for example "json" and "ndjson"
+     * @return the weak ETag, including its quotes
+     */
+    public String rostersETag(String representation) {
+        return "W/\"r" + epoch + "." + teams.get() + "." + drivers.get() + "-" + representation + "\"";
+    }
+}
@@ -0,0 +1,7 @@
+package ch.wiss.project151formulaone;
+
+/**
+ * The CountryCount class represents the number of drivers or teams of a country.
+ */
+public record CountryCount(String country, long count) {
+}
@@ -0,0 +1,102 @@
+package ch.wiss.project151formulaone;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The CsvReader reads comma separated values (RFC 4180) one record at a time.
+ *
+ * Fields may be enclosed in double quotes, in which case they can contain commas, line breaks and double quotes
+ * written twice. Only the current record is held in memory, so files of any size can be read.
+ */
+public class CsvReader {
+    private final BufferedReader reader;
+    private long line;
+    private long recordLine;
+
+    public CsvReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return the fields of the record, or null at the end of the input
+     * @throws IOException              if the input cannot be read
+     * @throws IllegalArgumentException if a quoted field is not terminated
+     */
+    public List<String> read() throws IOException {
+        String text = reader.readLine();
+        if (text == null) {
+            return null;
+        }
+        recordLine = ++line;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i == text.length()) {
+                if (!quoted) {
+                    break;
+                }
+                text = reader.readLine();
+                if (text == null) {
+                    throw new IllegalArgumentException("Line " + recordLine + ": quoted field is not terminated");
+                }
+                line++;
+                field.append('\n');
+                i = 0;
+                continue;
+            }
+            char c = text.charAt(i++);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i < text.length() && text.charAt(i) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Returns the line the record last read started on.
+     *
+     * @return the line number, starting at 1
+     */
+    public long line() {
+        return recordLine;
+    }
+
+    /**
+     * Prepares a field for writing, enclosing it in double quotes if it contains a comma, a double quote or a line
+     * break.
+     *
+     * @param field the field, or null for an empty field
+     * @return the field as it is written to a CSV file
+     */
+    public static String quote(String field) {
+        if (field == null) {
+            return "";
+        }
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+            return field;
+        }
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+}
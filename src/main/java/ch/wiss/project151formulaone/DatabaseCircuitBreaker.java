@@ -0,0 +1,271 @@
+package ch.wiss.project151formulaone;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * The DatabaseCircuitBreaker stops requests from waiting for a database that is down or stalled.
+ *
+ * Reads of drivers and teams run through the breaker; writes are reported by the CircuitBreakerFilter. Only calls that
+ * fail because the database cannot be reached count as failures: timeouts, connection and transaction errors, but not
+ * constraint violations or lock conflicts, which a working database reports as well. Slow calls do not count, since
+ * the listings over a million drivers take seconds even when the database is healthy; a stalled database makes the
+ * calls fail once the network timeout of the connection expires. After
+ * {@code formulaone.circuit-breaker.failure-threshold} failures in a row the breaker opens. While it is open, reads
+ * are answered from the ReadReplica without touching the database, and writes are rejected with SERVICE_UNAVAILABLE
+ * by the CircuitBreakerFilter, so neither ties up a request thread until the JDBC timeout. A read that fails while the
+ * breaker is still closed is answered from the ReadReplica as well.
+ *
+ * Every call takes a token from startCall when it begins and hands it back with its outcome. Outcomes of calls that
+ * began before the breaker last opened are ignored, so calls still running when it opened neither count towards the
+ * next opening nor reset the count of failures.
+ *
+ * Responses from the ReadReplica carry an Age header with the seconds since the database was last reached and a
+ * Warning header marking them as stale. An open breaker probes the database with a trivial query every
+ * {@code formulaone.circuit-breaker.probe-interval-ms} and closes once a probe succeeds within
+ * {@code formulaone.circuit-breaker.probe-timeout-ms}. Only the probe closes the breaker. The state is published
+ * as the {@code formulaone.circuit-breaker.open} gauge, the reads served from the ReadReplica and the rejected writes
+ * as the {@code formulaone.circuit-breaker.snapshot-reads} and {@code formulaone.circuit-breaker.rejected-writes}
+ * counters.
+ */
+@Component
+public class DatabaseCircuitBreaker {
+    private static final String STALE_WARNING = "110 - \"Response is Stale\"";
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final JdbcTemplate probe;
+    private final int failureThreshold;
+    private final long probeIntervalMs;
+    private final AtomicInteger failures = new AtomicInteger();
+
+    /**
+     * The number of times the breaker opened, which is the token of the calls started since.
+     */
+    private final AtomicLong openings = new AtomicLong();
+    private final Counter snapshotReads;
+    private final Counter rejectedWrites;
+
+    /**
+     * The time the breaker opened, or null while it is closed.
+     */
+    private volatile Instant openedAt;
+
+    /**
+     * The last time in milliseconds a call reached the database without failing, updated at most once a second.
+     */
+    private volatile long lastSuccess = System.currentTimeMillis();
+
+    public DatabaseCircuitBreaker(DataSource dataSource,
+                                  @Value("${formulaone.circuit-breaker.failure-threshold}") int failureThreshold,
+                                  @Value("${formulaone.circuit-breaker.probe-timeout-ms}") long probeTimeoutMs,
+                                  @Value("${formulaone.circuit-breaker.probe-interval-ms}") long probeIntervalMs,
+                                  MeterRegistry registry) {
+        this.probe = new JdbcTemplate(dataSource);
+        this.probe.setQueryTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(probeTimeoutMs)));
+        this.failureThreshold = failureThreshold;
+        this.probeIntervalMs = probeIntervalMs;
+        Gauge.builder("formulaone.circuit-breaker.open", this, breaker -> breaker.isOpen() ? 1 : 0)
+                .description("Whether the circuit breaker around the database is open")
+                .register(registry);
+        this.snapshotReads = Counter.builder("formulaone.circuit-breaker.snapshot-reads")
+                .description("Reads answered from the read replica instead of the database")
+                .register(registry);
+        this.rejectedWrites = Counter.builder("formulaone.circuit-breaker.rejected-writes")
+                .description("Writes rejected because the circuit breaker around the database was open")
+                .register(registry);
+    }
+
+    /**
+     * Answers a read from the database, or from the ReadReplica if the breaker is open or the database fails.
+     *
+     * @param database reads from the database, its outcome is recorded
+     * @param snapshot reads from the ReadReplica
+     * @return the response of either source, marked as stale if it comes from the ReadReplica
+     */
+    public ResponseEntity<?> read(Supplier<ResponseEntity<?>> database, Supplier<ResponseEntity<?>> snapshot) {
+        if (isOpen()) {
+            return stale(snapshot.get());
+        }
+        long call = startCall();
+        ResponseEntity<?> response;
+        try {
+            response = database.get();
+        } catch (DataAccessException | TransactionException e) {
+            if (!isFailure(e)) {
+                throw e;
+            }
+            recordFailure(call);
+            log.warn("Database read failed, answering from the read replica: {}", e.getMessage());
+            return stale(snapshot.get());
+        }
+        recordSuccess(call);
+        return response;
+    }
+
+    /**
+     * Chooses the source of a streamed response. The database is only queried while the body is written, after this
+     * method has returned, so the stream is neither measured nor answered from the ReadReplica if it fails.
+     *
+     * @param database creates the response streaming from the database
+     * @param snapshot creates the response streaming from the ReadReplica
+     * @return the response from the database if the breaker is closed, otherwise the stale one from the ReadReplica
+     */
+    public <T> ResponseEntity<T> stream(Supplier<ResponseEntity<T>> database, Supplier<ResponseEntity<T>> snapshot) {
+        return isOpen() ? stale(snapshot.get()) : database.get();
+    }
+
+    /**
+     * Returns whether the breaker is open, so the database is not called.
+     *
+     * @return true if the breaker is open
+     */
+    public boolean isOpen() {
+        return openedAt != null;
+    }
+
+    /**
+     * Returns the token of a call to the database that begins now.
+     *
+     * @return the token to record the outcome of the call with
+     */
+    public long startCall() {
+        return openings.get();
+    }
+
+    /**
+     * Returns whether an exception shows that the database cannot be reached, as opposed to rejecting a call.
+     *
+     * @param e the exception thrown by a call to the database
+     * @return true for timeouts, connection and transaction errors
+     */
+    public static boolean isFailure(Throwable e) {
+        return e instanceof TransactionException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof TransientDataAccessException && !(e instanceof ConcurrencyFailureException);
+    }
+
+    /**
+     * Records a call that failed, opening the breaker once there were enough failures in a row. Failures of calls
+     * that began before the breaker last opened are ignored.
+     *
+     * @param call the token from startCall
+     */
+    public void recordFailure(long call) {
+        if (call != openings.get() || failures.incrementAndGet() < failureThreshold) {
+            return;
+        }
+        synchronized (this) {
+            if (openedAt == null && call == openings.get()) {
+                openings.incrementAndGet();
+                openedAt = Instant.now();
+                log.warn("Opened the circuit breaker after {} failed database calls", failures.getAndSet(0));
+            }
+        }
+    }
+
+    /**
+     * Counts a write rejected because the breaker is open.
+     */
+    public void recordRejectedWrite() {
+        rejectedWrites.increment();
+    }
+
+    /**
+     * Returns the number of seconds clients should wait before retrying a rejected write.
+     *
+     * @return the seconds until the next probe of the database
+     */
+    public long retryAfterSeconds() {
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(probeIntervalMs + 999));
+    }
+
+    /**
+     * Creates the response for a read that the ReadReplica cannot answer, because it is still incomplete or does not
+     * hold the data.
+     *
+     * @return SERVICE_UNAVAILABLE with a Retry-After header
+     */
+    public <T> ResponseEntity<T> unavailable() {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds()))
+                .build();
+    }
+
+    /**
+     * Probes the database while the breaker is open, and closes the breaker once the probe succeeds.
+     */
+    @Scheduled(fixedDelayString = "${formulaone.circuit-breaker.probe-interval-ms}")
+    public void probe() {
+        Instant opened = openedAt;
+        if (opened == null) {
+            return;
+        }
+        try {
+            probe.queryForObject("SELECT 1", Integer.class);
+        } catch (DataAccessException e) {
+            log.debug("Database probe failed: {}", e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            lastSuccess = System.currentTimeMillis();
+            failures.set(0);
+            openedAt = null;
+        }
+        log.info("Closed the circuit breaker, the database responds again after {} s",
+                Duration.between(opened, Instant.now()).toSeconds());
+    }
+
+    /**
+     * Records a call that succeeded. The shared fields are only written when they change, since every read of a driver
+     * or team ends up here.
+     */
+    private void recordSuccess(long call) {
+        long now = System.currentTimeMillis();
+        if (now - lastSuccess >= 1000) {
+            lastSuccess = now;
+        }
+        if (call == openings.get() && failures.get() != 0) {
+            failures.set(0);
+        }
+    }
+
+    private <T> ResponseEntity<T> stale(ResponseEntity<T> response) {
+        if (response.getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE) {
+            return response;
+        }
+        snapshotReads.increment();
+        return ResponseEntity
+                .status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(HttpHeaders.AGE, Long.toString(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - lastSuccess)))
+                .header(HttpHeaders.WARNING, STALE_WARNING)
+                .body(response.getBody());
+    }
+}
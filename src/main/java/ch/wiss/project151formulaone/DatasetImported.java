@@ -0,0 +1,12 @@
+package ch.wiss.project151formulaone;
+
+/**
+ * The DatasetImported class is the application event published by DatasetTransfer once an import has written rows
+ * to the driver and team tables. The import bypasses the services, so listeners keeping state derived from the
+ * tables should reload it.
+ *
+ * @param teams   the number of teams imported
+ * @param drivers the number of drivers imported
+ */
+public record DatasetImported(long teams, long drivers) {
+}
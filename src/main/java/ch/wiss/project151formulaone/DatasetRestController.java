@@ -0,0 +1,93 @@
+package ch.wiss.project151formulaone;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Rest controller for exporting and importing the whole dataset of teams and drivers, as CSV or NDJSON files.
+ */
+@RestController
+@RequestMapping("api")
+public class DatasetRestController {
+    final DatasetTransfer transfer;
+
+    public DatasetRestController(DatasetTransfer transfer) {
+        this.transfer = transfer;
+    }
+
+    /**
+     * Streams all teams followed by all drivers, as CSV if the Accept header asks for text/csv and as NDJSON
+     * otherwise.
+     *
+     * @param accept the Accept header of the request
+     * @return the ResponseEntity streaming the dataset as an attachment
+     */
+    @GetMapping(value = "/export", produces = {ListingStreamer.APPLICATION_NDJSON, DatasetTransfer.TEXT_CSV})
+    public ResponseEntity<StreamingResponseBody> export(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        MediaType mediaType = transfer.exportMediaType(accept);
+        boolean csv = mediaType.getSubtype().equals("csv");
+        return ResponseEntity
+                .ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(csv ? "formulaone.csv" : "formulaone.ndjson").build().toString())
+                .body(csv ? transfer::exportCsv : transfer::exportNdjson);
+    }
+
+    /**
+     * Imports teams and drivers from an NDJSON file, merging them by ID into the existing ones.
+     *
+     * @param body the file
+     * @return the ResponseEntity containing the number of imported rows and the import rate, BAD_REQUEST if a line is
+     * invalid, or CONFLICT if the database rejects a row
+     * @throws IOException if the file cannot be read
+     */
+    @PostMapping(value = "/import", consumes = ListingStreamer.APPLICATION_NDJSON)
+    public ResponseEntity<?> importNdjson(InputStream body) throws IOException {
+        try {
+            return ResponseEntity.ok(transfer.importNdjson(body));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (DataIntegrityViolationException e) {
+            return rejected(e);
+        }
+    }
+
+    /**
+     * Imports teams and drivers from a CSV file, merging them by ID into the existing ones.
+     *
+     * @param body the file, starting with the header line
+     * @return the ResponseEntity containing the number of imported rows and the import rate, BAD_REQUEST if a line is
+     * invalid, or CONFLICT if the database rejects a row
+     * @throws IOException if the file cannot be read
+     */
+    @PostMapping(value = "/import", consumes = DatasetTransfer.TEXT_CSV)
+    public ResponseEntity<?> importCsv(InputStream body) throws IOException {
+        try {
+            return ResponseEntity.ok(transfer.importCsv(body));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (DataIntegrityViolationException e) {
+            return rejected(e);
+        }
+    }
+
+    private static ResponseEntity<?> rejected(DataIntegrityViolationException e) {
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body("Import rejected: " + e.getMostSpecificCause().getMessage());
+    }
+}
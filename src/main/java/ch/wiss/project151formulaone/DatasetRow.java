@@ -0,0 +1,66 @@
+package ch.wiss.project151formulaone;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * The DatasetRow class represents a single team or driver in an exported dataset.
+ *
+ * @param type    either "team" or "driver"
+ * @param id      the ID of the team or driver
+ * @param name    the name
+ * @param country the country
+ * @param teamId  the team ID of a driver, null for teams and drivers without a team
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record DatasetRow(String type, Long id, String name, String country, Long teamId) {
+    /**
+     * The type of rows describing a team.
+     */
+    public static final String TEAM = "team";
+
+    /**
+     * The type of rows describing a driver.
+     */
+    public static final String DRIVER = "driver";
+
+    /**
+     * Creates the row of a team.
+     *
+     * @param team the team
+     * @return the row
+     */
+    public static DatasetRow of(TeamDTO team) {
+        return new DatasetRow(TEAM, team.id(), team.name(), team.country(), null);
+    }
+
+    /**
+     * Creates the row of a driver.
+     *
+     * @param driver the driver
+     * @return the row
+     */
+    public static DatasetRow of(DriverDTO driver) {
+        return new DatasetRow(DRIVER, driver.id(), driver.name(), driver.country(), driver.teamId());
+    }
+
+    /**
+     * Checks that the row describes a complete team or driver.
+     *
+     * @throws IllegalArgumentException if the type is unknown, the ID is missing, the name or country is empty or a
+     *                                  team has a team ID
+     */
+    public void validate() {
+        if (!TEAM.equals(type) && !DRIVER.equals(type)) {
+            throw new IllegalArgumentException("Type must be team or driver, not " + type);
+        }
+        if (id == null) {
+            throw new IllegalArgumentException("ID of " + type + " is missing");
+        }
+        if (name == null || name.isEmpty() || country == null || country.isEmpty()) {
+            throw new IllegalArgumentException("Name and country of " + type + " " + id + " must not be empty");
+        }
+        if (TEAM.equals(type) && teamId != null) {
+            throw new IllegalArgumentException("Team " + id + " must not have a team ID");
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package ch.wiss.project151formulaone;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Service exporting and importing the whole dataset of teams and drivers as a single streamed file, in CSV or NDJSON.
+ *
+ * Every line of a file is one team or driver, described by a DatasetRow; CSV files start with a header naming the
+ * columns {@code type,id,name,country,teamId}. Exports list all teams before all drivers, so a driver never refers to a
+ * team that comes later in the file. They read both tables through server-side cursors in a single repeatable-read
+ * transaction, so the file is a consistent snapshot, and write every row to the response as soon as it is read.
+ *
+ * Imports parse the file one row at a time and write the rows in batches of {@code formulaone.import.batch-size},
+ * each with two batched MERGE statements in a transaction of its own, so the memory used stays the same for files of
+ * any size. Rows are merged by ID: existing teams and drivers are overwritten and get a new version, new ones are
+ * inserted with their ID, and rows missing from the file are kept. Importing the same file again is therefore
+ * harmless, which is how an import that failed halfway is completed; the batches before the failing row stay
+ * imported. Teams must come before the drivers that refer to them: the team reference of every driver is checked
+ * against the TeamIds and the teams of the batch it is in, and a driver referring to an unknown team is rejected
+ * before its batch is written.
+ *
+ * Before a batch is written, the ID sequences are moved past its IDs, so the application does not create teams or
+ * drivers with them afterwards. IDs the application has already taken from a sequence cannot be given back though:
+ * Hibernate takes a block of IDs per sequence call and hands them out from memory, and with the pooled-lo optimizer
+ * the block still in use is the one below the next value of the sequence. A new team or driver whose ID lies in that
+ * block is therefore rejected; existing rows with such IDs are merged as usual. Like the CollectionVersions, this
+ * assumes a single instance of the application, since other instances hold blocks of their own.
+ *
+ * An import bypasses the services, so no change events are published for it and the change feed does not carry the
+ * imported rows. Instead the caches are cleared, the imported rows are recorded in the history and a DatasetImported
+ * event is published, upon which the in-memory views reload.
+ */
+@Service
+public class DatasetTransfer {
+    /**
+     * The media type of CSV files.
+     */
+    public static final String TEXT_CSV = "text/csv";
+
+    private static final String CSV_HEADER = "type,id,name,country,teamId";
+
+    private static final String MERGE_TEAM = "MERGE INTO team t"
+            + " USING (VALUES (CAST(? AS BIGINT), CAST(? AS VARCHAR), CAST(? AS VARCHAR))) s (id, name, country) ON t.id = s.id"
+            + " WHEN MATCHED THEN UPDATE SET name = s.name, country = s.country, version = t.version + 1"
+            + " WHEN NOT MATCHED THEN INSERT (id, name, country) VALUES (s.id, s.name, s.country)";
+
+    private static final String MERGE_DRIVER = "MERGE INTO driver d"
+            + " USING (VALUES (CAST(? AS BIGINT), CAST(? AS VARCHAR), CAST(? AS VARCHAR), CAST(? AS BIGINT))) s (id, name, country, team_id)"
+            + " ON d.id = s.id"
+            + " WHEN MATCHED THEN UPDATE SET name = s.name, country = s.country, team_id = s.team_id, version = d.version + 1"
+            + " WHEN NOT MATCHED THEN INSERT (id, name, country, team_id) VALUES (s.id, s.name, s.country, s.team_id)";
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    final DriverService drivers;
+    final TeamService teams;
+    final HistoryService history;
+    final TeamIds teamIds;
+    final JdbcTemplate jdbc;
+    final ObjectMapper objectMapper;
+    final CacheManager cacheManager;
+    final ApplicationEventPublisher events;
+    final TransactionTemplate exportTransaction;
+    final TransactionTemplate importTransaction;
+    final int batchSize;
+
+    public DatasetTransfer(DriverService drivers, TeamService teams, HistoryService history, TeamIds teamIds, JdbcTemplate jdbc,
+                           ObjectMapper objectMapper, CacheManager cacheManager, ApplicationEventPublisher events,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${formulaone.import.batch-size}") int batchSize) {
+        this.drivers = drivers;
+        this.teams = teams;
+        this.history = history;
+        this.teamIds = teamIds;
+        this.jdbc = jdbc;
+        this.objectMapper = objectMapper;
+        this.cacheManager = cacheManager;
+        this.events = events;
+        this.exportTransaction = new TransactionTemplate(transactionManager);
+        this.exportTransaction.setReadOnly(true);
+        this.exportTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.importTransaction = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Selects the format to export in, the first one of CSV and NDJSON listed in the Accept header.
+     *
+     * @param accept the Accept header of the request, or null
+     * @return the media type of the format, NDJSON if the header names neither
+     */
+    public MediaType exportMediaType(String accept) {
+        if (accept != null) {
+            for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+                if (mediaType.getSubtype().equals("csv")) {
+                    return MediaType.parseMediaType(TEXT_CSV);
+                }
+                if (mediaType.getSubtype().equals("x-ndjson")) {
+                    break;
+                }
+            }
+        }
+        return MediaType.parseMediaType(ListingStreamer.APPLICATION_NDJSON);
+    }
+
+    /**
+     * Writes all teams and drivers as NDJSON, one DatasetRow per line.
+     *
+     * @param out the stream to write to, it is closed afterwards
+     * @throws IOException if writing fails
+     */
+    public void exportNdjson(OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            generator.setRootValueSeparator(null);
+            export(row -> {
+                generator.writeObject(row);
+                generator.writeRaw('\n');
+            });
+        }
+    }
+
+    /**
+     * Writes all teams and drivers as CSV, one DatasetRow per line after the header.
+     *
+     * @param out the stream to write to, it is closed afterwards
+     * @throws IOException if writing fails
+     */
+    public void exportCsv(OutputStream out) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+            export(row -> {
+                writer.write(row.type());
+                writer.write(',');
+                writer.write(Long.toString(row.id()));
+                writer.write(',');
+                writer.write(CsvReader.quote(row.name()));
+                writer.write(',');
+                writer.write(CsvReader.quote(row.country()));
+                writer.write(',');
+                writer.write(row.teamId() == null ? "" : Long.toString(row.teamId()));
+                writer.write('\n');
+            });
+        }
+    }
+
+    /**
+     * Imports teams and drivers from NDJSON, one DatasetRow per line.
+     *
+     * @param in the stream to read from
+     * @return the number of imported rows and the import rate
+     * @throws IOException              if reading fails
+     * @throws IllegalArgumentException if a line is not a valid DatasetRow
+     */
+    public ImportResult importNdjson(InputStream in) throws IOException {
+        try (MappingIterator<DatasetRow> rows = objectMapper.readerFor(DatasetRow.class).readValues(in)) {
+            return importRows(new RowSource() {
+                @Override
+                public DatasetRow next() throws IOException {
+                    try {
+                        return rows.hasNextValue() ? rows.nextValue() : null;
+                    } catch (JsonProcessingException e) {
+                        throw new IllegalArgumentException("Line " + line() + ": " + e.getOriginalMessage());
+                    } catch (RuntimeJsonMappingException e) {
+                        throw new IllegalArgumentException("Line " + line() + ": " + e.getMessage());
+                    }
+                }
+
+                @Override
+                public long line() {
+                    return rows.getCurrentLocation().getLineNr();
+                }
+            });
+        }
+    }
+
+    /**
+     * Imports teams and drivers from CSV with a header line naming the columns type, id, name, country and teamId.
+     *
+     * @param in the stream to read from
+     * @return the number of imported rows and the import rate
+     * @throws IOException              if reading fails
+     * @throws IllegalArgumentException if the header is missing or a record is not a valid DatasetRow
+     */
+    public ImportResult importCsv(InputStream in) throws IOException {
+        CsvReader reader = new CsvReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        List<String> header = reader.read();
+        if (header == null || !String.join(",", header).equals(CSV_HEADER)) {
+            throw new IllegalArgumentException("Line 1: header must be " + CSV_HEADER);
+        }
+        return importRows(new RowSource() {
+            @Override
+            public DatasetRow next() throws IOException {
+                List<String> fields;
+                do {
+                    fields = reader.read();
+                } while (fields != null && fields.size() == 1 && fields.get(0).isEmpty());
+                if (fields == null) {
+                    return null;
+                }
+                if (fields.size() != 5) {
+                    throw new IllegalArgumentException("Line " + line() + ": expected 5 fields, found " + fields.size());
+                }
+                try {
+                    return new DatasetRow(fields.get(0), id(fields.get(1)), fields.get(2), fields.get(3), id(fields.get(4)));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Line " + line() + ": invalid ID, " + e.getMessage());
+                }
+            }
+
+            @Override
+            public long line() {
+                return reader.line();
+            }
+        });
+    }
+
+    private void export(RowWriter writer) {
+        exportTransaction.executeWithoutResult(status -> {
+            try (Stream<TeamDTO> teamRows = teams.streamAll()) {
+                for (Iterator<TeamDTO> iterator = teamRows.iterator(); iterator.hasNext(); ) {
+                    writer.write(DatasetRow.of(iterator.next()));
+                }
+                try (Stream<DriverDTO> driverRows = drivers.streamAll()) {
+                    for (Iterator<DriverDTO> iterator = driverRows.iterator(); iterator.hasNext(); ) {
+                        writer.write(DatasetRow.of(iterator.next()));
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private ImportResult importRows(RowSource source) throws IOException {
+        long start = System.nanoTime();
+        List<TeamDTO> teamBatch = new ArrayList<>(batchSize);
+        List<DriverDTO> driverBatch = new ArrayList<>(batchSize);
+        Set<Long> batchTeamIds = new HashSet<>();
+        long importedTeams = 0;
+        long importedDrivers = 0;
+        ReservedIds reservedTeamIds = reservedIds("team");
+        ReservedIds reservedDriverIds = reservedIds("driver");
+        try {
+            for (DatasetRow row = source.next(); row != null; row = source.next()) {
+                try {
+                    row.validate();
+                    checkNotReserved(DatasetRow.TEAM.equals(row.type()) ? reservedTeamIds : reservedDriverIds, row.id());
+                    if (row.teamId() != null && !batchTeamIds.contains(row.teamId())) {
+                        teamIds.check(row.teamId());
+                    }
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Line " + source.line() + ": " + e.getMessage());
+                }
+                if (DatasetRow.TEAM.equals(row.type())) {
+                    teamBatch.add(new TeamDTO(row.id(), row.name(), row.country()));
+                    batchTeamIds.add(row.id());
+                } else {
+                    driverBatch.add(new DriverDTO(row.id(), row.name(), row.country(), row.teamId()));
+                }
+                if (teamBatch.size() + driverBatch.size() == batchSize) {
+                    write(teamBatch, driverBatch);
+                    importedTeams += teamBatch.size();
+                    importedDrivers += driverBatch.size();
+                    teamBatch.clear();
+                    driverBatch.clear();
+                    batchTeamIds.clear();
+                    reservedTeamIds = reservedIds("team");
+                    reservedDriverIds = reservedIds("driver");
+                }
+            }
+            write(teamBatch, driverBatch);
+            importedTeams += teamBatch.size();
+            importedDrivers += driverBatch.size();
+        } finally {
+            if (importedTeams + importedDrivers > 0) {
+                afterImport(importedTeams, importedDrivers);
+            }
+        }
+        ImportResult result = ImportResult.of(importedTeams, importedDrivers, System.nanoTime() - start);
+        log.info("Imported {} teams and {} drivers in {} ms, {} rows/s",
+                result.teams(), result.drivers(), result.millis(), result.rowsPerSecond());
+        return result;
+    }
+
+    private void write(List<TeamDTO> teamBatch, List<DriverDTO> driverBatch) {
+        if (teamBatch.isEmpty() && driverBatch.isEmpty()) {
+            return;
+        }
+        advanceSequence("team", teamBatch.stream().mapToLong(TeamDTO::id).max().orElse(0));
+        advanceSequence("driver", driverBatch.stream().mapToLong(DriverDTO::id).max().orElse(0));
+        importTransaction.executeWithoutResult(status -> {
+            jdbc.batchUpdate(MERGE_TEAM, teamBatch, teamBatch.size(), (statement, team) -> {
+                statement.setLong(1, team.id());
+                statement.setString(2, team.name());
+                statement.setString(3, team.country());
+            });
+            jdbc.batchUpdate(MERGE_DRIVER, driverBatch, driverBatch.size(), (statement, driver) -> {
+                statement.setLong(1, driver.id());
+                statement.setString(2, driver.name());
+                statement.setString(3, driver.country());
+                statement.setObject(4, driver.teamId());
+            });
+        });
+        history.recordImport(teamBatch, driverBatch);
+    }
+
+    /**
+     * Returns the block of IDs of a table that the application may have taken from its sequence but not used yet.
+     */
+    private ReservedIds reservedIds(String table) {
+        return jdbc.queryForObject("SELECT BASE_VALUE, INCREMENT FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = ?",
+                (rs, rowNum) -> new ReservedIds(table, rs.getLong(1) - rs.getLong(2), rs.getLong(1)),
+                table.toUpperCase() + "_SEQ");
+    }
+
+    /**
+     * Rejects a new team or driver whose ID the application may already have handed out. Rows with IDs in the block
+     * are rare, so looking them up one by one costs little.
+     */
+    private void checkNotReserved(ReservedIds reserved, long id) {
+        if (id >= reserved.from() && id < reserved.to()
+                && jdbc.queryForObject("SELECT COUNT(*) FROM " + reserved.table() + " WHERE id = ?", Integer.class, id) == 0) {
+            throw new IllegalArgumentException("ID " + id + " of the new " + reserved.table() + " may already be taken,"
+                    + " IDs from " + reserved.from() + " to " + (reserved.to() - 1) + " are reserved for " + reserved.table() + "s created by the application");
+        }
+    }
+
+    /**
+     * Moves the sequence of a table past an ID. The sequence is only ever moved forward, so IDs already taken from it
+     * are never handed out again.
+     */
+    private void advanceSequence(String table, long maxId) {
+        if (maxId == 0) {
+            return;
+        }
+        jdbc.execute("ALTER SEQUENCE " + table + "_seq RESTART WITH (SELECT GREATEST(" + (maxId + 1) + ", BASE_VALUE)"
+                + " FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = '" + table.toUpperCase() + "_SEQ')");
+    }
+
+    /**
+     * Brings everything derived from the tables up to date with the imported rows.
+     */
+    private void afterImport(long importedTeams, long importedDrivers) {
+        cacheManager.getCacheNames().stream()
+                .map(cacheManager::getCache)
+                .filter(Objects::nonNull)
+                .forEach(Cache::clear);
+        events.publishEvent(new DatasetImported(importedTeams, importedDrivers));
+    }
+
+    private static Long id(String field) {
+        return field.isEmpty() ? null : Long.valueOf(field);
+    }
+
+    /**
+     * The result of an import.
+     *
+     * @param teams         the number of imported teams
+     * @param drivers       the number of imported drivers
+     * @param millis        the duration of the import in milliseconds
+     * @param rowsPerSecond the number of rows imported per second
+     */
+    public record ImportResult(long teams, long drivers, long millis, long rowsPerSecond) {
+        static ImportResult of(long teams, long drivers, long nanos) {
+            return new ImportResult(teams, drivers, nanos / 1_000_000, nanos == 0 ? 0 : (teams + drivers) * 1_000_000_000L / nanos);
+        }
+    }
+
+    /**
+     * The IDs from {@code from} up to {@code to}, excluded, that the application may have taken from the sequence of
+     * a table but not used yet.
+     */
+    private record ReservedIds(String table, long from, long to) {
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(DatasetRow row) throws IOException;
+    }
+
+    private interface RowSource {
+        /**
+         * Reads the next row.
+         *
+         * @return the row, or null at the end of the file
+         */
+        DatasetRow next() throws IOException;
+
+        /**
+         * Returns the line of the file the row last read is on.
+         */
+        long line();
+    }
+}
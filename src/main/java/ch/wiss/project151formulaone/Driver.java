@@ -12,15 +12,17 @@ public class Driver {
      *
      * This variable is annotated with @Id, which indicates that it is the primary key of the entity.
      * It is also annotated with @GeneratedValue, which specifies the strategy used for generating the id value.
-     * In this case, the GenerationType.IDENTITY strategy is used, which means that the database will generate
-     * a unique id value for each new record automatically.
+     * In this case, the GenerationType.SEQUENCE strategy is used with the "driver_seq" database sequence. Hibernate
+     * reserves a block of allocationSize ids per sequence call, so new drivers already have their id before the insert
+     * is executed, which allows the inserts to be sent to the database as JDBC batches.
      *
      * Example usage:
      * Driver driver = new Driver();
      * Long id = driver.getId();
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "driver_seq")
+    @SequenceGenerator(name = "driver_seq", sequenceName = "driver_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -69,6 +71,18 @@ public class Driver {
     @Column(name = "team_id")
     private Long teamId;
 
+    /**
+     * The version variable represents the version of a Driver entity in a race car system.
+     *
+     * It is annotated with @Version, so Hibernate increments it with every update and only updates or deletes the row if
+     * its version is still the one that was read (optimistic locking). The version is exposed as the ETag of the driver.
+     *
+     * @see Driver
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
     /**
      * Constructs a new Driver object with the specified name, country, and team ID.
      *
@@ -151,4 +165,13 @@ public class Driver {
     public void setTeamId(Long teamId) {
         this.teamId = teamId;
     }
+
+    /**
+     * Retrieves the version of the driver.
+     *
+     * @return the version of the driver
+     */
+    public long getVersion() {
+        return version;
+    }
 }
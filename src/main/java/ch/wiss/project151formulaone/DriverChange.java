@@ -0,0 +1,13 @@
+package ch.wiss.project151formulaone;
+
+/**
+ * The DriverChange class is the application event published by DriverService for every driver that is created,
+ * updated or deleted. Listeners should use {@code @TransactionalEventListener} to only see committed changes.
+ *
+ * @param kind   the kind of change
+ * @param id     the ID of the driver
+ * @param before the driver before the change, or null if it was created
+ * @param after  the driver after the change, or null if it was deleted
+ */
+public record DriverChange(ChangeKind kind, long id, DriverDTO before, DriverDTO after) {
+}
@@ -1,6 +1,71 @@
 package ch.wiss.project151formulaone;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
-public interface DriverRepository extends JpaRepository<Driver, Long> {
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
+public interface DriverRepository extends JpaRepository<Driver, Long>, JpaSpecificationExecutor<Driver>, PatchRepository, ProjectionRepository {
+    /**
+     * Retrieves the drivers with an ID greater than the given cursor as DriverDTO objects, ordered by ID (keyset
+     * pagination), without loading the entities.
+     *
+     * @param after the ID of the last driver of the previous page
+     * @param limit the maximum number of drivers to return
+     * @return the next page of drivers
+     */
+    @Query("select new ch.wiss.project151formulaone.DriverDTO(d.id, d.name, d.country, d.teamId) from Driver d where d.id > :after order by d.id")
+    List<DriverDTO> findDTOsByIdGreaterThan(long after, Limit limit);
+
+    /**
+     * Streams all drivers as DriverDTO objects ordered by ID, without loading the entities. The stream must be consumed
+     * and closed inside a transaction.
+     *
+     * @return a stream over all drivers
+     */
+    @Query("select new ch.wiss.project151formulaone.DriverDTO(d.id, d.name, d.country, d.teamId) from Driver d order by d.id")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    Stream<DriverDTO> streamAllDTOs();
+
+    /**
+     * Retrieves the drivers with the given IDs as DriverDTO objects, without loading the entities.
+     *
+     * @param ids the IDs to look up
+     * @return the drivers of the given IDs that exist
+     */
+    @Query("select new ch.wiss.project151formulaone.DriverDTO(d.id, d.name, d.country, d.teamId) from Driver d where d.id in :ids")
+    List<DriverDTO> findDTOsByIdIn(Collection<Long> ids);
+
+    /**
+     * Retrieves the version of a driver without loading the entity.
+     *
+     * @param id the ID of the driver
+     * @return the version of the driver, or empty if no driver with the given ID exists
+     */
+    @Query("select d.version from Driver d where d.id = :id")
+    Optional<Long> findVersionById(long id);
+
+    /**
+     * Counts the drivers of every country with a single group by query.
+     *
+     * @return the number of drivers per country, for every country with at least one driver
+     */
+    @Query("select new ch.wiss.project151formulaone.CountryCount(d.country, count(d)) from Driver d group by d.country")
+    List<CountryCount> countPerCountry();
+
+    /**
+     * Counts the drivers that are not assigned to a team.
+     *
+     * @return the number of drivers without a team
+     */
+    long countByTeamIdIsNull();
 }
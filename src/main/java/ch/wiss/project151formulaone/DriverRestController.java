@@ -3,64 +3,283 @@ package ch.wiss.project151formulaone;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 
 /**
  * Rest controller for managing driver resources.
+ *
+ * Reads of drivers run through the DatabaseCircuitBreaker: while the database is unavailable they are answered from
+ * the ReadReplica, marked as stale, and writes are rejected with SERVICE_UNAVAILABLE by the CircuitBreakerFilter.
  */
 @RestController
 @RequestMapping("api/driver")
 public class DriverRestController {
+    /**
+     * The page size used by {@code /all} when only a cursor is given.
+     */
+    static final int DEFAULT_PAGE_SIZE = 100;
+
+    /**
+     * The largest page size accepted by {@code /all}.
+     */
+    static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * The largest number of operations accepted by {@code /batch}.
+     */
+    static final int MAX_BATCH_SIZE = 1000;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
-    final DriverRepository drivers;
+    final DriverService drivers;
+    final ListingStreamer listings;
+    final CollectionVersions versions;
+    final WriteBehindQueue writes;
+    final HistoryService history;
+    final DatabaseCircuitBreaker breaker;
+    final ReadReplica replica;
 
-    public DriverRestController(DriverRepository drivers) {
+    public DriverRestController(DriverService drivers, ListingStreamer listings, CollectionVersions versions, WriteBehindQueue writes,
+                                HistoryService history, DatabaseCircuitBreaker breaker, ReadReplica replica) {
         this.drivers = drivers;
+        this.listings = listings;
+        this.versions = versions;
+        this.writes = writes;
+        this.history = history;
+        this.breaker = breaker;
+        this.replica = replica;
     }
 
     /**
-     * Retrieves all teams in the race car system.
+     * Retrieves all drivers in the race car system.
      *
-     * @return the ResponseEntity containing a list of DriverDTO objects representing the teams
+     * Every driver is streamed from the database straight into a JSON array, so the response never has to be held in
+     * memory as a whole. If the ETag given in {@code If-None-Match} is still current, NOT_MODIFIED is returned without
+     * querying the drivers. While the DatabaseCircuitBreaker is open, the drivers are streamed from the ReadReplica.
+     *
+     * @param request the current request, used to evaluate {@code If-None-Match}
+     * @return the ResponseEntity streaming the DriverDTO objects representing the drivers
+     */
+    @GetMapping(value = "/all", params = {"!after", "!limit"})
+    public ResponseEntity<StreamingResponseBody> getAllTeams(WebRequest request) {
+        String etag = versions.driversETag("json");
+        if (request.checkNotModified(etag)) {
+            return notModified();
+        }
+        return breaker.stream(() -> ResponseEntity
+                        .ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(listings.jsonArray(drivers::streamAll, Function.identity())),
+                () -> replica.isLoaded() ? ResponseEntity
+                        .ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(listings.jsonArray(replica.drivers())) : breaker.unavailable());
+    }
+
+    /**
+     * Retrieves all drivers in the race car system in a binary encoding, CBOR or Smile depending on the Accept header.
+     * The drivers are streamed like the JSON listing but the response is smaller and cheaper to produce, which suits
+     * service-to-service consumers that pull the full listing.
+     *
+     * @param accept  the Accept header of the request, selecting the encoding
+     * @param request the current request, used to evaluate {@code If-None-Match}
+     * @return the ResponseEntity streaming the DriverDTO objects representing the drivers
+     */
+    @GetMapping(value = "/all", params = {"!after", "!limit"},
+            produces = {ListingStreamer.APPLICATION_CBOR, ListingStreamer.APPLICATION_SMILE})
+    public ResponseEntity<StreamingResponseBody> getAllBinary(@RequestHeader(HttpHeaders.ACCEPT) String accept, WebRequest request) {
+        MediaType mediaType = listings.binaryMediaType(accept);
+        String etag = versions.driversETag(mediaType.getSubtype());
+        if (request.checkNotModified(etag)) {
+            return notModified();
+        }
+        return breaker.stream(() -> ResponseEntity
+                        .ok()
+                        .contentType(mediaType)
+                        .body(listings.binaryArray(mediaType, drivers::streamAll, Function.identity())),
+                () -> replica.isLoaded() ? ResponseEntity
+                        .ok()
+                        .contentType(mediaType)
+                        .body(listings.binaryArray(mediaType, replica.drivers())) : breaker.unavailable());
+    }
+
+    /**
+     * Retrieves a single page of drivers ordered by ID (keyset pagination).
+     * If the page is full, a {@code Link} header with {@code rel="next"} points to the following page.
+     *
+     * @param after the ID of the last driver of the previous page, or null to start at the beginning
+     * @param limit the maximum number of drivers in the page, or null for the default page size
+     * @param request the current request, used to evaluate {@code If-None-Match}
+     * @return the ResponseEntity containing the page of DriverDTO objects, or BAD_REQUEST if the limit is out of range
      */
     @GetMapping("/all")
-    public ResponseEntity<?> getAllTeams() {
-        List<DriverDTO> driverDTOs = drivers.findAll()
-                .stream()
-                .map(DriverDTO::fromDomain)
-                .collect(Collectors.toList());
-        System.out.println(driverDTOs.size());
-        return ResponseEntity.ok(driverDTOs);
+    public ResponseEntity<?> getPage(@RequestParam(required = false) Long after, @RequestParam(required = false) Integer limit,
+                                     WebRequest request) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        String etag = versions.driversETag("json");
+        if (request.checkNotModified(etag)) {
+            return notModified();
+        }
+
+        Function<List<DriverDTO>, ResponseEntity<?>> page = driverDTOs -> {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (driverDTOs.size() == pageSize) {
+                long cursor = driverDTOs.get(driverDTOs.size() - 1).id();
+                response.header(HttpHeaders.LINK, "</api/driver/all?after=" + cursor + "&limit=" + pageSize + ">; rel=\"next\"");
+            }
+            return response.body(driverDTOs);
+        };
+        long cursor = after == null ? 0 : after;
+        return breaker.read(() -> page.apply(drivers.findPage(cursor, pageSize)),
+                () -> replica.isLoaded() ? page.apply(replica.searchDrivers(null, null, null, cursor, pageSize)) : breaker.unavailable());
+    }
+
+    /**
+     * Searches drivers by country, name prefix and team, ordered by ID (keyset pagination).
+     * The filters can be combined and are translated into a single query. If the page is full, a {@code Link} header
+     * with {@code rel="next"} points to the following page of the same search.
+     *
+     * @param country the country of the drivers, matched exactly
+     * @param name    the prefix of the names of the drivers, matched case-sensitively
+     * @param teamId  the ID of the team of the drivers
+     * @param after   the ID of the last driver of the previous page, or null to start at the beginning
+     * @param limit   the maximum number of drivers in the page, or null for the default page size
+     * @param request the current request, used to evaluate {@code If-None-Match}
+     * @return the ResponseEntity containing the matching DriverDTO objects, or BAD_REQUEST if the limit is out of range
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> search(@RequestParam(required = false) String country, @RequestParam(required = false) String name,
+                                    @RequestParam(required = false) Long teamId, @RequestParam(required = false) Long after,
+                                    @RequestParam(required = false) Integer limit, WebRequest request) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        String etag = versions.driversETag("json");
+        if (request.checkNotModified(etag)) {
+            return notModified();
+        }
+
+        Function<List<DriverDTO>, ResponseEntity<?>> page = driverDTOs -> {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (driverDTOs.size() == pageSize) {
+                String next = UriComponentsBuilder.fromPath("/api/driver/search")
+                        .queryParamIfPresent("country", Optional.ofNullable(country))
+                        .queryParamIfPresent("name", Optional.ofNullable(name))
+                        .queryParamIfPresent("teamId", Optional.ofNullable(teamId))
+                        .queryParam("after", driverDTOs.get(driverDTOs.size() - 1).id())
+                        .queryParam("limit", pageSize)
+                        .encode()
+                        .toUriString();
+                response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+            }
+            return response.body(driverDTOs);
+        };
+        long cursor = after == null ? 0 : after;
+        return breaker.read(() -> page.apply(drivers.search(country, name, teamId, cursor, pageSize)),
+                () -> replica.isLoaded() ? page.apply(replica.searchDrivers(country, name, teamId, cursor, pageSize)) : breaker.unavailable());
+    }
+
+    /**
+     * Streams all drivers in the race car system as newline delimited JSON, one driver per line.
+     *
+     * @param request the current request, used to evaluate {@code If-None-Match}
+     * @return the ResponseEntity streaming a DriverDTO object per line
+     */
+    @GetMapping(value = "/all", params = {"!after", "!limit"}, produces = ListingStreamer.APPLICATION_NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAll(WebRequest request) {
+        String etag = versions.driversETag("ndjson");
+        if (request.checkNotModified(etag)) {
+            return notModified();
+        }
+        return breaker.stream(() -> ResponseEntity
+                        .ok()
+                        .contentType(MediaType.parseMediaType(ListingStreamer.APPLICATION_NDJSON))
+                        .body(listings.ndjson(drivers::streamAll, Function.identity())),
+                () -> replica.isLoaded() ? ResponseEntity
+                        .ok()
+                        .contentType(MediaType.parseMediaType(ListingStreamer.APPLICATION_NDJSON))
+                        .body(listings.ndjson(replica.drivers())) : breaker.unavailable());
     }
 
     /**
      * Retrieves a driver by ID.
+     * The version of the driver is sent as its ETag. If it matches {@code If-None-Match}, NOT_MODIFIED is returned
+     * without loading the driver. If the database is unavailable, the driver is read from the ReadReplica instead and
+     * the response is marked as stale, without an ETag.
      *
-     * @param id the ID of the driver to retrieve
+     * @param id      the ID of the driver to retrieve
+     * @param request the current request, used to evaluate {@code If-None-Match}
      * @return the ResponseEntity containing the driver data, or empty if the driver is not found
      */
     @GetMapping("/{id}")
-    public ResponseEntity<?> get(@PathVariable long id) {
-        Optional<DriverDTO> maybeDriverDTO = drivers
-                        .findById(id)
-                        .map(DriverDTO::fromDomain);
-        return ResponseEntity
-                .of(maybeDriverDTO);
+    public ResponseEntity<?> get(@PathVariable long id, WebRequest request) {
+        return breaker.read(() -> {
+            Optional<Long> maybeVersion = drivers.findVersion(id);
+            if (maybeVersion.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            String etag = ETags.forVersion(maybeVersion.get());
+            if (request.checkNotModified(etag)) {
+                return notModified();
+            }
+
+            Optional<DriverDTO> maybeDriverDTO = drivers.findById(id, maybeVersion.get());
+            return maybeDriverDTO
+                    .<ResponseEntity<?>>map(driverDTO -> ResponseEntity.ok().body(driverDTO))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        }, () -> replica.isLoaded() ? replica.findDriver(id)
+                .<ResponseEntity<?>>map(driverDTO -> ResponseEntity.ok().body(driverDTO))
+                .orElseGet(() -> ResponseEntity.notFound().build()) : breaker.unavailable());
+    }
+
+    /**
+     * Retrieves a driver as it was at the given time, from the history of the driver.
+     *
+     * @param id   the ID of the driver to retrieve
+     * @param asOf the time, as an ISO-8601 instant such as 2024-03-01T12:00:00Z
+     * @return the ResponseEntity containing the driver data as of that time, or NOT_FOUND if the driver did not exist then
+     */
+    @GetMapping(value = "/{id}", params = "asOf")
+    public ResponseEntity<?> getAsOf(@PathVariable long id, @RequestParam Instant asOf) {
+        return history.findDriverAsOf(id, asOf)
+                .<ResponseEntity<?>>map(driverDTO -> ResponseEntity.ok().body(driverDTO))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     /**
      * Creates a new driver by taking in a DriverDTO object.
      * If the driverDTO.id is not null, returns a ResponseEntity with BAD_REQUEST status and error message "Driver ID must be null".
-     * Otherwise, creates a new Driver object using the driverDTO.name, driverDTO.country, and driverDTO.teamId values.
+     * If no team with the driverDTO.teamId exists, returns a ResponseEntity with BAD_REQUEST status, or CONFLICT if
+     * the team was deleted concurrently.
+     * Otherwise, saves a new Driver using the driverDTO.name, driverDTO.country, and driverDTO.teamId values.
      * Returns a ResponseEntity with CREATED status, location URI "/api/driver/{driverId}",
-     * and the DriverDTO object created from the newDriver object.
+     * and the DriverDTO object of the saved driver.
      *
      * @param driverDTO the DriverDTO object containing the driver details
      * @return a ResponseEntity with CREATED status and the created DriverDTO object
@@ -75,25 +294,41 @@ public class DriverRestController {
                     .body("Driver ID must be null");
         }
 
-        Driver newDriver = new Driver(driverDTO.name(), driverDTO.country(), driverDTO.teamId());
+        DriverDTO newDriverDTO;
+        try {
+            newDriverDTO = drivers.create(driverDTO);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(e.getMessage());
+        } catch (DataIntegrityViolationException e) {
+            return rejected(e);
+        }
 
         return ResponseEntity
-                .created(URI.create("/api/driver/" + newDriver.getId()))
-                .body(DriverDTO.fromDomain(newDriver));
+                .created(URI.create("/api/driver/" + newDriverDTO.id()))
+                .body(newDriverDTO);
     }
 
     /**
      * Deletes a driver by ID.
+     * If an {@code If-Match} header is given, the driver is only deleted if its ETag still matches, otherwise
+     * PRECONDITION_FAILED is returned.
      *
-     * @param id the ID of the driver to delete
+     * @param id      the ID of the driver to delete
+     * @param ifMatch the ETag the driver must have, or null
      * @return a ResponseEntity representing the status of the deletion operation
      */
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> delete(@PathVariable long id) {
-        if (!drivers.existsById(id)) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    public ResponseEntity<?> delete(@PathVariable long id, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        writes.writeQueuedDriver(id);
+        try {
+            if (!drivers.delete(id, ETags.requiredVersion(ifMatch))) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+        } catch (OptimisticLockingFailureException e) {
+            return modified(id, ifMatch);
         }
-        drivers.deleteById(id);
         log.info("Deleted Resource {}", id);
         return new ResponseEntity<>(HttpStatus.OK);
     }
@@ -105,32 +340,176 @@ public class DriverRestController {
      * If the driver with the given ID exists, updates the driver's name, country, and teamId properties with the values from the driverDTO object.
      * Saves the updated driver in the repository and returns a ResponseEntity with OK status and the updated DriverDTO object.
      * If the driver with the given ID does not exist, returns a ResponseEntity with NOT_FOUND status and the error message "Driver of ID {id} not found".
+     * If no team with the driverDTO.teamId exists, returns BAD_REQUEST, or CONFLICT if the team was deleted concurrently.
+     * If an If-Match header is given and the ETag of the driver no longer matches, returns PRECONDITION_FAILED. A driver
+     * modified concurrently by another request results in PRECONDITION_FAILED with If-Match, CONFLICT without.
+     * With {@code Prefer: respond-async} and without If-Match, the update is queued in the WriteBehindQueue and
+     * ACCEPTED is returned with a WriteTicket, or TOO_MANY_REQUESTS if the queue is full. Otherwise an update of the
+     * driver still queued is written first, so it cannot overwrite this update when the queue is flushed.
      *
      * @param id         the ID of the driver to update
      * @param driverDTO  the DriverDTO object containing the updated driver details
+     * @param ifMatch    the ETag the driver must have, or null
+     * @param prefer     the Prefer header, requesting an asynchronous update with respond-async, or null
      * @return a ResponseEntity with the updated DriverDTO object or an error message
      */
     @PutMapping("/{id}")
-    public ResponseEntity<?> update(@PathVariable long id, @RequestBody DriverDTO driverDTO) {
+    public ResponseEntity<?> update(@PathVariable long id, @RequestBody DriverDTO driverDTO,
+                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                    @RequestHeader(value = "Prefer", required = false) String prefer) {
         if (driverDTO.id() != null && driverDTO.id() != id) {
             return ResponseEntity
                     .status(HttpStatus.I_AM_A_TEAPOT)
                     .body("Path Variable of id not equal to Driver ID");
         }
+        if (ifMatch == null && WriteBehindQueue.respondAsync(prefer)) {
+            return accepted(writes.updateDriver(id, driverDTO));
+        }
+        writes.writeQueuedDriver(id);
 
-        Optional<Driver> maybeDriver = drivers.findById(id);
-        if (maybeDriver.isPresent()) {
-            Driver driver = maybeDriver.get();
-            driver.setName(driverDTO.name());
-            driver.setCountry(driverDTO.country());
-            driver.setTeamId(driverDTO.teamId());
-            drivers.save(driver);
+        Optional<DriverDTO> maybeDriverDTO;
+        try {
+            maybeDriverDTO = drivers.update(id, driverDTO, ETags.requiredVersion(ifMatch));
+        } catch (IllegalArgumentException e) {
             return ResponseEntity
-                    .ok(DriverDTO.fromDomain(driver));
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            return modified(id, ifMatch);
+        } catch (DataIntegrityViolationException e) {
+            return rejected(e);
+        }
+        if (maybeDriverDTO.isPresent()) {
+            return ResponseEntity
+                    .ok(maybeDriverDTO.get());
         } else {
             return ResponseEntity
                     .status(HttpStatus.NOT_FOUND)
                     .body("Driver of ID " + id + " not found");
         }
     }
+
+    /**
+     * Partially updates a driver with the given ID using a JSON Merge Patch (RFC 7396).
+     * Only the members present in the patch are changed, a teamId of null removes the driver from its team. The
+     * changed columns are written with a single UPDATE statement without loading the driver first.
+     * If the patch contains an id that is not equal to the path variable id, returns I_AM_A_TEAPOT. If the patch
+     * contains an unknown member, a null name or country, a value of the wrong type, or an unknown teamId, returns
+     * BAD_REQUEST. If the team was deleted concurrently, returns CONFLICT.
+     * If the driver with the given ID does not exist, returns NOT_FOUND, otherwise OK with the patched DriverDTO object.
+     * If an If-Match header is given and the ETag of the driver no longer matches, returns PRECONDITION_FAILED.
+     *
+     * @param id      the ID of the driver to patch
+     * @param patch   the merge patch document
+     * @param ifMatch the ETag the driver must have, or null
+     * @return a ResponseEntity with the patched DriverDTO object or an error message
+     */
+    @PatchMapping(value = "/{id}", consumes = {MergePatch.APPLICATION_MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<?> patch(@PathVariable long id, @RequestBody Map<String, Object> patch,
+                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Object patchId = patch.get("id");
+        if (patchId != null && !(patchId instanceof Number number && number.longValue() == id)) {
+            return ResponseEntity
+                    .status(HttpStatus.I_AM_A_TEAPOT)
+                    .body("Path Variable of id not equal to Driver ID");
+        }
+        writes.writeQueuedDriver(id);
+
+        Optional<DriverDTO> maybeDriverDTO;
+        try {
+            maybeDriverDTO = drivers.patch(id, patch, ETags.requiredVersion(ifMatch));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            return modified(id, ifMatch);
+        } catch (DataIntegrityViolationException e) {
+            return rejected(e);
+        }
+        if (maybeDriverDTO.isPresent()) {
+            return ResponseEntity
+                    .ok(maybeDriverDTO.get());
+        } else {
+            return ResponseEntity
+                    .status(HttpStatus.NOT_FOUND)
+                    .body("Driver of ID " + id + " not found");
+        }
+    }
+
+    /**
+     * Creates, updates and deletes several drivers with a single request.
+     * All operations of the batch run in one transaction and are sent to the database as JDBC batch statements.
+     * Returns a ResponseEntity with OK status and a BatchItemResult per operation. Invalid operations are reported
+     * with their own status and do not prevent the others. If the database rejects the batch, for example because of a
+     * foreign key violation, nothing is written and a ResponseEntity with CONFLICT status is returned.
+     * If the batch contains more than {@link #MAX_BATCH_SIZE} operations, returns BAD_REQUEST.
+     *
+     * @param batch the BatchRequest containing the DriverDTO objects to create and update and the IDs to delete
+     * @return a ResponseEntity with the result of every operation or an error message
+     * @see BatchItemResult
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> batch(@RequestBody BatchRequest<DriverDTO> batch) {
+        if (batch.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body("Batch must not contain more than " + MAX_BATCH_SIZE + " operations");
+        }
+        writeQueued(batch);
+
+        try {
+            return ResponseEntity
+                    .ok(drivers.batch(batch));
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity
+                    .status(HttpStatus.CONFLICT)
+                    .body("Batch rejected: " + e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    private static ResponseEntity<?> rejected(DataIntegrityViolationException e) {
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body("Driver rejected: " + e.getMostSpecificCause().getMessage());
+    }
+
+    private ResponseEntity<?> accepted(Optional<WriteTicket> ticket) {
+        if (ticket.isEmpty()) {
+            return ResponseEntity
+                    .status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(writes.retryAfterSeconds()))
+                    .body("Write queue is full");
+        }
+        return ResponseEntity
+                .accepted()
+                .location(URI.create("/api/tickets/" + ticket.get().ticket()))
+                .header("Preference-Applied", "respond-async")
+                .body(ticket.get());
+    }
+
+    private void writeQueued(BatchRequest<DriverDTO> batch) {
+        if (batch.update() != null) {
+            batch.update().stream()
+                    .filter(update -> update != null && update.id() != null)
+                    .forEach(update -> writes.writeQueuedDriver(update.id()));
+        }
+        if (batch.delete() != null) {
+            batch.delete().stream()
+                    .filter(Objects::nonNull)
+                    .forEach(writes::writeQueuedDriver);
+        }
+    }
+
+    private static <T> ResponseEntity<T> notModified() {
+        return ResponseEntity
+                .status(HttpStatus.NOT_MODIFIED)
+                .build();
+    }
+
+    private static ResponseEntity<?> modified(long id, String ifMatch) {
+        return ResponseEntity
+                .status(ifMatch == null ? HttpStatus.CONFLICT : HttpStatus.PRECONDITION_FAILED)
+                .body("Driver of ID " + id + " has been modified");
+    }
 }
@@ -0,0 +1,368 @@
+package ch.wiss.project151formulaone;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static ch.wiss.project151formulaone.BatchItemResult.Operation.CREATE;
+import static ch.wiss.project151formulaone.BatchItemResult.Operation.DELETE;
+import static ch.wiss.project151formulaone.BatchItemResult.Operation.UPDATE;
+import static ch.wiss.project151formulaone.CacheConfiguration.DRIVERS;
+import static ch.wiss.project151formulaone.CacheConfiguration.DRIVER_PAGES;
+
+/**
+ * Service providing cached read-through access to drivers.
+ *
+ * Drivers are cached as DriverDTO objects together with their version by ID, and keyset pages are cached by cursor
+ * and limit. Every write keeps the caches correct: the written driver is evicted from the driver cache and all cached
+ * pages are dropped, since a single write can shift the content of any page. A cached driver is only returned if its
+ * version is still the one in the database, so writes of other instances or that bypass the services are not served
+ * from the cache either. A DriverChange event is published for every created, updated or deleted driver. The team of
+ * a written driver is checked against the TeamIds, so a reference to a known team costs no query.
+ */
+@Service
+public class DriverService {
+    /**
+     * The fields of a driver that can be changed with a merge patch.
+     */
+    private static final MergePatch.Target PATCHABLE = new MergePatch.Target("driver",
+            List.of("id", "name", "country", "team_id"),
+            Map.of(
+                    "name", new MergePatch.Field("name", String.class, false),
+                    "country", new MergePatch.Field("country", String.class, false),
+                    "teamId", new MergePatch.Field("team_id", Long.class, true)));
+
+    final DriverRepository drivers;
+    final CacheManager cacheManager;
+    final ApplicationEventPublisher events;
+    final SingleFlight<Long, Optional<Versioned<DriverDTO>>> loads;
+    final SingleFlight<Long, Optional<Long>> versionLoads;
+    final TeamIds teamIds;
+
+    public DriverService(DriverRepository drivers, CacheManager cacheManager, ApplicationEventPublisher events, TeamIds teamIds,
+                         MeterRegistry registry) {
+        this.drivers = drivers;
+        this.cacheManager = cacheManager;
+        this.events = events;
+        this.loads = new SingleFlight<>("driver", registry);
+        this.versionLoads = new SingleFlight<>("driver", registry);
+        this.teamIds = teamIds;
+    }
+
+    /**
+     * Retrieves a driver by ID, going to the database only if the driver is not cached with the given version. A cached
+     * driver of another version is replaced by the one loaded. Concurrent cache misses for the same ID share a single
+     * query.
+     *
+     * @param id      the ID of the driver
+     * @param version the current version of the driver, see findVersion
+     * @return the driver, or empty if no driver with the given ID exists
+     */
+    public Optional<DriverDTO> findById(long id, long version) {
+        Cache cache = cacheManager.getCache(DRIVERS);
+        Versioned<?> cached = cache.get(id, Versioned.class);
+        if (cached != null && cached.version() == version) {
+            return Optional.of((DriverDTO) cached.value());
+        }
+        return loads.load(id, () -> {
+            // Cached before the load completes, so readers arriving after it find the driver without another query
+            Optional<Versioned<DriverDTO>> loaded = drivers.findById(id)
+                    .map(driver -> new Versioned<>(DriverDTO.fromDomain(driver), driver.getVersion()));
+            loaded.ifPresentOrElse(found -> cache.put(id, found), () -> cache.evict(id));
+            return loaded;
+        }).map(Versioned::value);
+    }
+
+    /**
+     * Retrieves a page of drivers ordered by ID, going to the database only if the page is not cached.
+     *
+     * @param after the ID of the last driver of the previous page
+     * @param limit the maximum number of drivers in the page
+     * @return the page of drivers
+     */
+    @Cacheable(cacheNames = DRIVER_PAGES, key = "#after + ':' + #limit")
+    @Transactional(readOnly = true)
+    public List<DriverDTO> findPage(long after, int limit) {
+        return drivers.findDTOsByIdGreaterThan(after, Limit.of(limit));
+    }
+
+    /**
+     * Searches drivers by country, name prefix and team with a single query, ordered by ID (keyset pagination).
+     * Absent filters are left out of the query. The result is not cached.
+     *
+     * @param country    the country of the drivers, or null
+     * @param namePrefix the prefix of the names of the drivers, or null
+     * @param teamId     the ID of the team of the drivers, or null
+     * @param after      the ID of the last driver of the previous page
+     * @param limit      the maximum number of drivers in the page
+     * @return the page of matching drivers
+     */
+    @Transactional(readOnly = true)
+    public List<DriverDTO> search(String country, String namePrefix, Long teamId, long after, int limit) {
+        Specification<Driver> specification = Specification.allOf(
+                SearchSpecifications.idGreaterThan(after),
+                SearchSpecifications.equal("country", country),
+                SearchSpecifications.startsWith("name", namePrefix),
+                SearchSpecifications.equal("teamId", teamId));
+        return drivers.findAllProjected(Driver.class, specification, DriverDTO.class, limit);
+    }
+
+    /**
+     * Streams all drivers ordered by ID, bypassing the cache. The stream must be consumed inside a transaction.
+     *
+     * @return a stream over all drivers
+     */
+    public Stream<DriverDTO> streamAll() {
+        return drivers.streamAllDTOs();
+    }
+
+    /**
+     * Retrieves the version of a driver without loading it, used as the ETag of the driver. Concurrent lookups of the same
+     * ID share a single query.
+     *
+     * @param id the ID of the driver
+     * @return the version of the driver, or empty if no driver with the given ID exists
+     */
+    public Optional<Long> findVersion(long id) {
+        return versionLoads.load(id, () -> drivers.findVersionById(id));
+    }
+
+    /**
+     * Makes version lookups that start after a write of a driver query the database again, rather than wait for a lookup
+     * that may have read the version before the write.
+     *
+     * @param change the committed change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverChange(DriverChange change) {
+        versionLoads.forget(change.id());
+    }
+
+    /**
+     * Creates a new driver with the name, country and team ID of the given DriverDTO.
+     *
+     * @param driverDTO the DriverDTO object containing the details of the new driver
+     * @return the created driver including its generated ID
+     * @throws IllegalArgumentException if no team with the team ID exists
+     */
+    @Transactional
+    @CacheEvict(cacheNames = DRIVER_PAGES, allEntries = true)
+    public DriverDTO create(DriverDTO driverDTO) {
+        teamIds.check(driverDTO.teamId());
+        DriverDTO created = DriverDTO.fromDomain(drivers.save(new Driver(driverDTO.name(), driverDTO.country(), driverDTO.teamId())));
+        events.publishEvent(new DriverChange(ChangeKind.CREATE, created.id(), null, created));
+        return created;
+    }
+
+    /**
+     * Updates the name, country and team ID of an existing driver.
+     *
+     * @param id              the ID of the driver to update
+     * @param driverDTO       the DriverDTO object containing the updated driver details
+     * @param expectedVersion the version the driver must have, or null to update any version
+     * @return the updated driver, or empty if no driver with the given ID exists
+     * @throws IllegalArgumentException          if no team with the team ID exists
+     * @throws OptimisticLockingFailureException if the driver does not have the expected version, or was modified
+     *                                           concurrently
+     */
+    @Transactional
+    @Caching(evict = {@CacheEvict(cacheNames = DRIVERS, key = "#id"),
+            @CacheEvict(cacheNames = DRIVER_PAGES, allEntries = true)})
+    public Optional<DriverDTO> update(long id, DriverDTO driverDTO, Long expectedVersion) {
+        return drivers.findById(id).map(driver -> {
+            checkVersion(driver, expectedVersion);
+            teamIds.check(driverDTO.teamId());
+            DriverDTO before = DriverDTO.fromDomain(driver);
+            driver.setName(driverDTO.name());
+            driver.setCountry(driverDTO.country());
+            driver.setTeamId(driverDTO.teamId());
+            DriverDTO after = DriverDTO.fromDomain(drivers.save(driver));
+            events.publishEvent(new DriverChange(ChangeKind.UPDATE, id, before, after));
+            return after;
+        });
+    }
+
+    /**
+     * Applies a JSON Merge Patch to the name, country and team ID of an existing driver.
+     *
+     * Only the columns present in the patch are written, with a single UPDATE statement that does not load the
+     * driver first and returns its previous state for the DriverChange event. Whether the driver exists follows from the
+     * affected row count; its version is only looked up if the statement did not match and a version was expected.
+     * A patch without fields writes nothing and publishes no event; it only returns the current driver.
+     *
+     * @param id              the ID of the driver to patch
+     * @param mergePatch      the merge patch document, members set to null clear the field
+     * @param expectedVersion the version the driver must have, or null to patch any version
+     * @return the patched driver, or empty if no driver with the given ID exists
+     * @throws IllegalArgumentException          if the patch contains an unknown field, clears a field that must not
+     *                                           be null, has a value of the wrong type, or references an unknown team
+     * @throws OptimisticLockingFailureException if the driver does not have the expected version
+     */
+    @Transactional
+    @Caching(evict = {@CacheEvict(cacheNames = DRIVERS, key = "#id"),
+            @CacheEvict(cacheNames = DRIVER_PAGES, allEntries = true)})
+    public Optional<DriverDTO> patch(long id, Map<String, Object> mergePatch, Long expectedVersion) {
+        MergePatch patch = PATCHABLE.parse(mergePatch);
+        if (patch.isEmpty()) {
+            return drivers.findById(id).map(driver -> {
+                checkVersion(driver, expectedVersion);
+                return DriverDTO.fromDomain(driver);
+            });
+        }
+        teamIds.check(patch.valueOr("team_id", null));
+        Optional<Object[]> previous = drivers.patch(patch, id, expectedVersion);
+        if (previous.isEmpty()) {
+            if (expectedVersion != null && drivers.findVersionById(id).isPresent()) {
+                throw new OptimisticLockingFailureException("Driver of ID " + id + " does not have version " + expectedVersion);
+            }
+            return Optional.empty();
+        }
+        Object[] row = previous.get();
+        DriverDTO before = new DriverDTO((Long) row[0], (String) row[1], (String) row[2], (Long) row[3]);
+        DriverDTO after = new DriverDTO(id, patch.valueOr("name", before.name()), patch.valueOr("country", before.country()),
+                patch.valueOr("team_id", before.teamId()));
+        events.publishEvent(new DriverChange(ChangeKind.UPDATE, id, before, after));
+        return Optional.of(after);
+    }
+
+    /**
+     * Deletes a driver by ID.
+     *
+     * @param id              the ID of the driver to delete
+     * @param expectedVersion the version the driver must have, or null to delete any version
+     * @return true if the driver existed and was deleted, false otherwise
+     * @throws OptimisticLockingFailureException if the driver does not have the expected version, or was modified
+     *                                           concurrently
+     */
+    @Transactional
+    @Caching(evict = {@CacheEvict(cacheNames = DRIVERS, key = "#id"),
+            @CacheEvict(cacheNames = DRIVER_PAGES, allEntries = true)})
+    public boolean delete(long id, Long expectedVersion) {
+        Optional<Driver> driver = drivers.findById(id);
+        if (driver.isEmpty()) {
+            return false;
+        }
+        checkVersion(driver.get(), expectedVersion);
+        drivers.delete(driver.get());
+        events.publishEvent(new DriverChange(ChangeKind.DELETE, id, DriverDTO.fromDomain(driver.get()), null));
+        return true;
+    }
+
+    /**
+     * Executes the create, update and delete operations of a batch in a single transaction.
+     *
+     * New drivers receive their IDs from the sequence before they are inserted, and the drivers to update are loaded with
+     * a single query, so Hibernate can send all inserts and updates as JDBC batches when the transaction is flushed.
+     * Existing drivers to delete are removed with a single bulk delete statement. Operations that are invalid on their
+     * own (for example an update of an unknown driver, or a driver of an unknown team) are reported in the result and
+     * do not affect the others.
+     *
+     * @param batch the operations to execute
+     * @return the result of every operation, in request order per operation kind
+     */
+    @Transactional
+    @CacheEvict(cacheNames = DRIVER_PAGES, allEntries = true)
+    public List<BatchItemResult> batch(BatchRequest<DriverDTO> batch) {
+        List<BatchItemResult> results = new ArrayList<>();
+        List<DriverChange> changes = new ArrayList<>();
+
+        List<DriverDTO> create = orEmpty(batch.create());
+        for (int i = 0; i < create.size(); i++) {
+            DriverDTO driverDTO = create.get(i);
+            if (driverDTO.id() != null) {
+                results.add(new BatchItemResult(CREATE, i, driverDTO.id(), HttpStatus.BAD_REQUEST.value(), "Driver ID must be null"));
+                continue;
+            }
+            if (driverDTO.teamId() != null && !teamIds.contains(driverDTO.teamId())) {
+                results.add(new BatchItemResult(CREATE, i, null, HttpStatus.BAD_REQUEST.value(), "Team of ID " + driverDTO.teamId() + " not found"));
+                continue;
+            }
+            Driver driver = drivers.save(new Driver(driverDTO.name(), driverDTO.country(), driverDTO.teamId()));
+            changes.add(new DriverChange(ChangeKind.CREATE, driver.getId(), null, DriverDTO.fromDomain(driver)));
+            results.add(new BatchItemResult(CREATE, i, driver.getId(), HttpStatus.CREATED.value(), null));
+        }
+
+        List<DriverDTO> update = orEmpty(batch.update());
+        Map<Long, Driver> existing = drivers.findAllById(update.stream().map(DriverDTO::id).filter(Objects::nonNull).toList())
+                .stream()
+                .collect(Collectors.toMap(Driver::getId, Function.identity()));
+        for (int i = 0; i < update.size(); i++) {
+            DriverDTO driverDTO = update.get(i);
+            Driver driver = driverDTO.id() == null ? null : existing.get(driverDTO.id());
+            if (driverDTO.id() == null) {
+                results.add(new BatchItemResult(UPDATE, i, null, HttpStatus.BAD_REQUEST.value(), "Driver ID must not be null"));
+            } else if (driver == null) {
+                results.add(new BatchItemResult(UPDATE, i, driverDTO.id(), HttpStatus.NOT_FOUND.value(), "Driver of ID " + driverDTO.id() + " not found"));
+            } else if (driverDTO.teamId() != null && !teamIds.contains(driverDTO.teamId())) {
+                results.add(new BatchItemResult(UPDATE, i, driverDTO.id(), HttpStatus.BAD_REQUEST.value(), "Team of ID " + driverDTO.teamId() + " not found"));
+            } else {
+                DriverDTO before = DriverDTO.fromDomain(driver);
+                driver.setName(driverDTO.name());
+                driver.setCountry(driverDTO.country());
+                driver.setTeamId(driverDTO.teamId());
+                changes.add(new DriverChange(ChangeKind.UPDATE, driver.getId(), before, DriverDTO.fromDomain(driver)));
+                results.add(new BatchItemResult(UPDATE, i, driver.getId(), HttpStatus.OK.value(), null));
+            }
+        }
+
+        List<Long> delete = orEmpty(batch.delete());
+        Map<Long, DriverDTO> deletable = delete.isEmpty() ? Map.of() : drivers.findDTOsByIdIn(delete)
+                .stream()
+                .collect(Collectors.toMap(DriverDTO::id, Function.identity()));
+        for (int i = 0; i < delete.size(); i++) {
+            Long id = delete.get(i);
+            if (id == null) {
+                results.add(new BatchItemResult(DELETE, i, null, HttpStatus.BAD_REQUEST.value(), "Driver ID must not be null"));
+            } else if (deletable.containsKey(id)) {
+                results.add(new BatchItemResult(DELETE, i, id, HttpStatus.OK.value(), null));
+            } else {
+                results.add(new BatchItemResult(DELETE, i, id, HttpStatus.NOT_FOUND.value(), "Driver of ID " + id + " not found"));
+            }
+        }
+
+        drivers.flush();
+        if (!deletable.isEmpty()) {
+            drivers.deleteAllByIdInBatch(deletable.keySet());
+        }
+
+        Cache cache = cacheManager.getCache(DRIVERS);
+        for (DriverDTO driverDTO : deletable.values()) {
+            changes.add(new DriverChange(ChangeKind.DELETE, driverDTO.id(), driverDTO, null));
+        }
+        for (DriverChange change : changes) {
+            cache.evict(change.id());
+            events.publishEvent(change);
+        }
+        return results;
+    }
+
+    private static void checkVersion(Driver driver, Long expectedVersion) {
+        if (expectedVersion != null && driver.getVersion() != expectedVersion) {
+            throw new OptimisticLockingFailureException("Driver of ID " + driver.getId() + " has version " + driver.getVersion());
+        }
+    }
+
+    private static <T> List<T> orEmpty(List<T> operations) {
+        return operations == null ? List.of() : operations;
+    }
+}
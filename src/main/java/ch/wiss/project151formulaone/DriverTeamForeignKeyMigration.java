@@ -0,0 +1,64 @@
+package ch.wiss.project151formulaone;
+
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Migration 1.1, which adds the foreign key from {@code driver.team_id} to {@code team.id} unless the driver table
+ * already references the team table.
+ *
+ * Databases set up before Flyway picked up the migration scripts were baselined at version 1, so this migration runs on
+ * them even though they may already contain the key under a generated name. A plain {@code ALTER TABLE} would add a
+ * second key there. Spring Boot hands every {@link JavaMigration} bean to Flyway.
+ */
+@Component
+public class DriverTeamForeignKeyMigration implements JavaMigration {
+    @Override
+    public MigrationVersion getVersion() {
+        return MigrationVersion.fromVersion("1.1");
+    }
+
+    @Override
+    public String getDescription() {
+        return "INSERT FOREIGN KEYS";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return null;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return true;
+    }
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        if (referencesTeam(connection)) {
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE DRIVER ADD FOREIGN KEY (TEAM_ID) REFERENCES TEAM(ID)");
+        }
+    }
+
+    private static boolean referencesTeam(Connection connection) throws SQLException {
+        try (ResultSet keys = connection.getMetaData().getImportedKeys(connection.getCatalog(), connection.getSchema(), "DRIVER")) {
+            while (keys.next()) {
+                if ("TEAM".equalsIgnoreCase(keys.getString("PKTABLE_NAME")) && "TEAM_ID".equalsIgnoreCase(keys.getString("FKCOLUMN_NAME"))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package ch.wiss.project151formulaone;
+
+/**
+ * Converts between entity versions and the strong ETags exposed for single drivers and teams.
+ */
+final class ETags {
+    private ETags() {
+    }
+
+    /**
+     * Returns the ETag of an entity with the given version.
+     *
+     * @param version the version of the entity
+     * @return the strong ETag, including its quotes
+     */
+    static String forVersion(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Returns the version required by an {@code If-Match} header.
+     * Only a single strong ETag or {@code *} is supported; any other value can never match.
+     *
+     * @param ifMatch the value of the If-Match header, may be null
+     * @return the required version, null if any version is accepted, or -1 if no version can match
+     */
+    static Long requiredVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+}
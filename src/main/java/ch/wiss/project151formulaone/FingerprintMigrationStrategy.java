@@ -0,0 +1,103 @@
+package ch.wiss.project151formulaone;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.Location;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Migration strategy that skips Flyway at startup while the migration scripts are unchanged
+ * ({@code formulaone.startup.skip-unchanged-migrations=true}, see the {@code fast-startup} profile).
+ *
+ * After every successful migration, a SHA-256 fingerprint over the names and contents of the migration scripts is
+ * stored in the {@code schema_fingerprint} table, together with the versions and classes of the Java migrations. A later start with the same scripts finds the same fingerprint and
+ * leaves out Flyway's validation and migration, since the database already contains every script. Changed or added
+ * scripts change the fingerprint, so Flyway runs as usual and validates the applied checksums.
+ */
+@Component
+@ConditionalOnProperty(name = "formulaone.startup.skip-unchanged-migrations", havingValue = "true")
+public class FingerprintMigrationStrategy implements FlywayMigrationStrategy {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    @Override
+    public void migrate(Flyway flyway) {
+        DataSource dataSource = flyway.getConfiguration().getDataSource();
+        String fingerprint = fingerprint(flyway.getConfiguration().getLocations(), flyway.getConfiguration().getJavaMigrations());
+        if (fingerprint.equals(storedFingerprint(dataSource))) {
+            log.info("Migration scripts unchanged, skipping Flyway (fingerprint {})", fingerprint);
+            return;
+        }
+        flyway.migrate();
+        storeFingerprint(dataSource, fingerprint);
+    }
+
+    private static String fingerprint(Location[] locations, JavaMigration[] javaMigrations) {
+        try {
+            PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+            List<Resource> scripts = new ArrayList<>();
+            for (Location location : locations) {
+                scripts.addAll(List.of(resolver.getResources(location.getDescriptor() + "/**/*.sql")));
+            }
+            scripts.sort(Comparator.comparing(Resource::getFilename));
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Resource script : scripts) {
+                digest.update(script.getFilename().getBytes());
+                digest.update(script.getContentAsByteArray());
+            }
+            List<String> migrations = new ArrayList<>();
+            for (JavaMigration migration : javaMigrations) {
+                migrations.add(migration.getVersion() + " " + migration.getClass().getName());
+            }
+            migrations.sort(Comparator.naturalOrder());
+            for (String migration : migrations) {
+                digest.update(migration.getBytes());
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String storedFingerprint(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("select fingerprint from schema_fingerprint where id = 1");
+             ResultSet result = statement.executeQuery()) {
+            return result.next() ? result.getString(1) : null;
+        } catch (SQLException e) {
+            log.debug("No schema fingerprint stored: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void storeFingerprint(DataSource dataSource, String fingerprint) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("merge into schema_fingerprint (id, fingerprint) key (id) values (1, ?)")) {
+            statement.setString(1, fingerprint);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            log.warn("Could not store the schema fingerprint: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package ch.wiss.project151formulaone;
+
+import java.time.Instant;
+
+/**
+ * The HistoryChange class represents a committed change of a driver or team as it is appended to the history.
+ *
+ * @param id    the ID of the changed driver or team
+ * @param at    the time from which the change is valid
+ * @param after the driver or team after the change, or null if it was deleted
+ * @param <T>   the DTO type of the changed entity
+ */
+public record HistoryChange<T>(long id, Instant at, T after) {
+}
@@ -0,0 +1,135 @@
+package ch.wiss.project151formulaone;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Repository of the driver_history and team_history tables, which keep every version of a driver or team together
+ * with the period it was current in.
+ *
+ * The history is written with plain JDBC batches: appending changes closes the current version of every changed
+ * driver or team with one batched update and inserts the new versions with one batched insert. The tables are not
+ * mapped as entities, so reading and writing them never touches the persistence context.
+ */
+@Repository
+public class HistoryRepository {
+    private static final RowMapper<DriverDTO> DRIVER = (rs, row) ->
+            new DriverDTO(rs.getLong("driver_id"), rs.getString("name"), rs.getString("country"), rs.getObject("team_id", Long.class));
+    private static final RowMapper<TeamDTO> TEAM = (rs, row) ->
+            new TeamDTO(rs.getLong("team_id"), rs.getString("name"), rs.getString("country"));
+
+    final JdbcTemplate jdbc;
+
+    public HistoryRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Appends driver changes to the history.
+     *
+     * @param changes the changes, in the order they were made
+     */
+    public void appendDrivers(List<HistoryChange<DriverDTO>> changes) {
+        append(changes, "driver_history", "driver_id", List.of("name", "country", "team_id"),
+                driver -> new Object[]{driver.name(), driver.country(), driver.teamId()});
+    }
+
+    /**
+     * Appends team changes to the history.
+     *
+     * @param changes the changes, in the order they were made
+     */
+    public void appendTeams(List<HistoryChange<TeamDTO>> changes) {
+        append(changes, "team_history", "team_id", List.of("name", "country"),
+                team -> new Object[]{team.name(), team.country()});
+    }
+
+    /**
+     * Retrieves a driver as it was at the given time.
+     *
+     * @param id   the ID of the driver
+     * @param asOf the time
+     * @return the driver, or empty if it did not exist at that time
+     */
+    public Optional<DriverDTO> findDriverAsOf(long id, Instant asOf) {
+        OffsetDateTime time = timestamp(asOf);
+        return jdbc.query("SELECT driver_id, name, country, team_id FROM driver_history"
+                        + " WHERE driver_id = ? AND valid_from <= ? AND (valid_to IS NULL OR valid_to > ?)",
+                DRIVER, id, time, time).stream().findFirst();
+    }
+
+    /**
+     * Retrieves a team as it was at the given time.
+     *
+     * @param id   the ID of the team
+     * @param asOf the time
+     * @return the team, or empty if it did not exist at that time
+     */
+    public Optional<TeamDTO> findTeamAsOf(long id, Instant asOf) {
+        OffsetDateTime time = timestamp(asOf);
+        return jdbc.query("SELECT team_id, name, country FROM team_history"
+                        + " WHERE team_id = ? AND valid_from <= ? AND (valid_to IS NULL OR valid_to > ?)",
+                TEAM, id, time, time).stream().findFirst();
+    }
+
+    /**
+     * Retrieves the drivers of a team as they were at the given time.
+     *
+     * @param teamId the ID of the team
+     * @param asOf   the time
+     * @return the drivers that belonged to the team at that time, ordered by ID
+     */
+    public List<DriverDTO> findDriversOfTeamAsOf(long teamId, Instant asOf) {
+        OffsetDateTime time = timestamp(asOf);
+        return jdbc.query("SELECT driver_id, name, country, team_id FROM driver_history"
+                        + " WHERE team_id = ? AND valid_from <= ? AND (valid_to IS NULL OR valid_to > ?) ORDER BY driver_id",
+                DRIVER, teamId, time, time);
+    }
+
+    /**
+     * Closes the current version of every changed row at the time of its first change and inserts the versions after
+     * the changes. A row changed several times gets one version per change, each valid until the next change.
+     */
+    private <T> void append(List<HistoryChange<T>> changes, String table, String idColumn, List<String> columns,
+                            Function<T, Object[]> values) {
+        Map<Long, List<HistoryChange<T>>> changesById = changes.stream()
+                .collect(Collectors.groupingBy(HistoryChange::id, LinkedHashMap::new, Collectors.toList()));
+        List<Object[]> closed = new ArrayList<>(changesById.size());
+        List<Object[]> inserted = new ArrayList<>(changes.size());
+        changesById.forEach((id, rowChanges) -> {
+            closed.add(new Object[]{timestamp(rowChanges.get(0).at()), id});
+            for (int i = 0; i < rowChanges.size(); i++) {
+                HistoryChange<T> change = rowChanges.get(i);
+                if (change.after() == null) {
+                    continue;
+                }
+                Object[] columnValues = values.apply(change.after());
+                Object[] row = new Object[3 + columnValues.length];
+                row[0] = id;
+                row[1] = timestamp(change.at());
+                row[2] = i + 1 < rowChanges.size() ? timestamp(rowChanges.get(i + 1).at()) : null;
+                System.arraycopy(columnValues, 0, row, 3, columnValues.length);
+                inserted.add(row);
+            }
+        });
+        jdbc.batchUpdate("UPDATE " + table + " SET valid_to = ? WHERE " + idColumn + " = ? AND valid_to IS NULL", closed);
+        jdbc.batchUpdate("INSERT INTO " + table + " (" + idColumn + ", valid_from, valid_to, " + String.join(", ", columns)
+                + ") VALUES (?, ?, ?" + ", ?".repeat(columns.size()) + ")", inserted);
+    }
+
+    private static OffsetDateTime timestamp(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC);
+    }
+}
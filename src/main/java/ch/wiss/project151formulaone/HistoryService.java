@@ -0,0 +1,270 @@
+package ch.wiss.project151formulaone;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Service recording the history of drivers and teams and answering reads of their state at a past time.
+ *
+ * The history is written behind the requests: every committed DriverChange and TeamChange is stamped with the time
+ * it became valid and queued in memory, and a scheduled flush appends the queued changes in batches, in a
+ * transaction of its own. Writes therefore only pay for adding a change to a list, and the current-state tables and
+ * reads are not involved at all. The timestamps increase strictly, so the changes of a driver or team never share a
+ * validity period. If the queue reaches its capacity, the write that filled it flushes the queue itself, which slows
+ * that write down instead of losing history.
+ *
+ * A batch that cannot be appended, for example while the database is down, is put back at the head of its queue and
+ * retried by a later flush. Flushes back off after a failure, starting at the flush interval and doubling up to
+ * {@code formulaone.history.max-backoff-ms}, so an outage does not turn every flush into a wait for the JDBC timeout.
+ * Changes are only dropped when they arrive while the queue is at its capacity and backing off; they are counted as
+ * {@code formulaone.history.dropped}.
+ *
+ * Reads of the history flush the queue first, so they see every change committed before they started. The queue is
+ * stopped after the write-behind queue during shutdown, so the history of the writes it flushes is still recorded.
+ * Like the AggregateView, the service is created eagerly even with lazy initialization, so the scheduled flush runs.
+ */
+@Service
+@Lazy(false)
+public class HistoryService implements SmartLifecycle {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    final HistoryRepository history;
+    final TransactionTemplate transaction;
+    final int capacity;
+    final int batchSize;
+    final long flushIntervalMs;
+    final long maxBackoffMs;
+    final Counter dropped;
+
+    private final List<HistoryChange<DriverDTO>> drivers = new ArrayList<>();
+    private final List<HistoryChange<TeamDTO>> teams = new ArrayList<>();
+    private final Object flushLock = new Object();
+
+    /**
+     * The time of the last queued change, guarded by the service.
+     */
+    private Instant last = Instant.EPOCH;
+
+    /**
+     * Whether the scheduled flush is active, guarded by the service.
+     */
+    private boolean running;
+
+    /**
+     * The delay after the last failed flush in milliseconds, 0 if the last flush succeeded, guarded by the service.
+     */
+    private long backoffMs;
+
+    /**
+     * The time in milliseconds before which no flush is attempted after a failure, guarded by the service.
+     */
+    private long retryAt;
+
+    public HistoryService(HistoryRepository history, PlatformTransactionManager transactionManager,
+                          @Value("${formulaone.history.capacity}") int capacity,
+                          @Value("${formulaone.history.batch-size}") int batchSize,
+                          @Value("${formulaone.history.flush-interval-ms}") long flushIntervalMs,
+                          @Value("${formulaone.history.max-backoff-ms}") long maxBackoffMs,
+                          MeterRegistry registry) {
+        this.history = history;
+        this.transaction = new TransactionTemplate(transactionManager);
+        // The changes arrive after the commit of their transaction, whose resources are still bound to the thread
+        this.transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.dropped = Counter.builder("formulaone.history.dropped")
+                .description("Driver and team changes not recorded in the history because the queue was full while the database was unavailable")
+                .register(registry);
+        Gauge.builder("formulaone.history.pending", this, HistoryService::pending)
+                .description("Driver and team changes waiting to be appended to the history")
+                .register(registry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverChange(DriverChange change) {
+        enqueue(drivers, change.id(), change.after());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTeamChange(TeamChange change) {
+        enqueue(teams, change.id(), change.after());
+    }
+
+    /**
+     * Records teams and drivers written by an import, which bypasses the services and publishes no change events.
+     *
+     * @param importedTeams   the teams as they were imported
+     * @param importedDrivers the drivers as they were imported
+     */
+    public void recordImport(List<TeamDTO> importedTeams, List<DriverDTO> importedDrivers) {
+        importedTeams.forEach(team -> enqueue(teams, team.id(), team));
+        importedDrivers.forEach(driver -> enqueue(drivers, driver.id(), driver));
+    }
+
+    /**
+     * Retrieves a driver as it was at the given time.
+     *
+     * @param id   the ID of the driver
+     * @param asOf the time
+     * @return the driver, or empty if it did not exist at that time
+     */
+    public Optional<DriverDTO> findDriverAsOf(long id, Instant asOf) {
+        flush();
+        return history.findDriverAsOf(id, asOf);
+    }
+
+    /**
+     * Retrieves a team as it was at the given time.
+     *
+     * @param id   the ID of the team
+     * @param asOf the time
+     * @return the team, or empty if it did not exist at that time
+     */
+    public Optional<TeamDTO> findTeamAsOf(long id, Instant asOf) {
+        flush();
+        return history.findTeamAsOf(id, asOf);
+    }
+
+    /**
+     * Retrieves a team together with the drivers it had at the given time.
+     *
+     * @param id   the ID of the team
+     * @param asOf the time
+     * @return the roster, or empty if the team did not exist at that time
+     */
+    public Optional<TeamRosterDTO> findRosterAsOf(long id, Instant asOf) {
+        flush();
+        return history.findTeamAsOf(id, asOf)
+                .map(team -> new TeamRosterDTO(team.id(), team.name(), team.country(), history.findDriversOfTeamAsOf(id, asOf)));
+    }
+
+    /**
+     * Appends everything queued at the time of the call to the history, unless the flush is backing off after a
+     * failure.
+     */
+    @Scheduled(fixedDelayString = "${formulaone.history.flush-interval-ms}")
+    public void flush() {
+        flush(false);
+    }
+
+    @Override
+    public synchronized void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        synchronized (this) {
+            running = false;
+        }
+        flush(true);
+        int lost = pending();
+        if (lost > 0) {
+            log.error("Stopped with {} changes that could not be appended to the history", lost);
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 2;
+    }
+
+    private synchronized int pending() {
+        return drivers.size() + teams.size();
+    }
+
+    private <T> void enqueue(List<HistoryChange<T>> queue, long id, T after) {
+        boolean full;
+        synchronized (this) {
+            if (pending() >= capacity && backingOff()) {
+                dropped.increment();
+                return;
+            }
+            Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+            last = now.isAfter(last) ? now : last.plus(1, ChronoUnit.MICROS);
+            queue.add(new HistoryChange<>(id, last, after));
+            full = !running || pending() >= capacity;
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    private void flush(boolean force) {
+        synchronized (flushLock) {
+            boolean more;
+            do {
+                more = flush(drivers, history::appendDrivers, force) | flush(teams, history::appendTeams, force);
+            } while (more);
+        }
+    }
+
+    private synchronized boolean backingOff() {
+        return backoffMs > 0 && System.currentTimeMillis() < retryAt;
+    }
+
+    /**
+     * Appends the next batch of a queue to the history. A batch that fails is put back at the head of the queue.
+     *
+     * @return true if there may be more changes to append, false if the queue is drained, the append failed or the
+     *         flush is backing off
+     */
+    private <T> boolean flush(List<HistoryChange<T>> queue, Consumer<List<HistoryChange<T>>> appender, boolean force) {
+        List<HistoryChange<T>> batch;
+        synchronized (this) {
+            if (!force && backingOff()) {
+                return false;
+            }
+            List<HistoryChange<T>> head = queue.subList(0, Math.min(batchSize, queue.size()));
+            batch = List.copyOf(head);
+            head.clear();
+        }
+        if (batch.isEmpty()) {
+            return false;
+        }
+        try {
+            transaction.executeWithoutResult(status -> appender.accept(batch));
+        } catch (RuntimeException e) {
+            long delay;
+            synchronized (this) {
+                queue.addAll(0, batch);
+                backoffMs = backoffMs == 0 ? flushIntervalMs : Math.min(2 * backoffMs, maxBackoffMs);
+                retryAt = System.currentTimeMillis() + backoffMs;
+                delay = backoffMs;
+            }
+            log.warn("Failed to append {} changes to the history, retrying in {} ms: {}", batch.size(), delay, e.getMessage());
+            return false;
+        }
+        synchronized (this) {
+            backoffMs = 0;
+        }
+        return batch.size() == batchSize;
+    }
+}
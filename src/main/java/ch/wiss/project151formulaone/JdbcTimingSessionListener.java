@@ -0,0 +1,38 @@
+package ch.wiss.project151formulaone;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * Hibernate session listener measuring the time spent executing JDBC statements and batches.
+ *
+ * Hibernate creates an instance per session, registered through the {@code hibernate.session.events.auto} property.
+ * The measured time is added to the {@link RequestTimings} of the current request and reported to the {@link SqlLog}.
+ */
+public class JdbcTimingSessionListener implements SessionEventListener {
+    private long statementStart;
+    private long batchStart;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        statementStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        long nanos = System.nanoTime() - statementStart;
+        RequestTimings.addJdbc(nanos);
+        SqlLog.executed(nanos);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        long nanos = System.nanoTime() - batchStart;
+        RequestTimings.addJdbc(nanos);
+        SqlLog.executed(nanos);
+    }
+}
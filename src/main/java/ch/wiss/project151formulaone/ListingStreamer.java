@@ -0,0 +1,205 @@
+package ch.wiss.project151formulaone;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import jakarta.persistence.EntityManager;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * The ListingStreamer writes the rows of a repository stream straight to the HTTP response.
+ *
+ * Rows are mapped and written one at a time, either as a single JSON array or as newline delimited JSON (NDJSON),
+ * and the persistence context is cleared at regular intervals, since it is read-only. The memory used by a listing
+ * therefore stays flat no matter how many rows the underlying table holds. The rows may be entities or projections.
+ *
+ * Arrays can also be written in the binary CBOR and Smile encodings, which are smaller and cheaper to produce than
+ * JSON. They use copies of the application's ObjectMapper, so the DTOs are serialized the same way in every format.
+ * Rows held in memory, such as those of the ReadReplica, are written the same way but without a transaction.
+ */
+@Component
+public class ListingStreamer {
+    /**
+     * The media type used for newline delimited JSON responses.
+     */
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    /**
+     * The media type used for CBOR responses.
+     */
+    public static final String APPLICATION_CBOR = "application/cbor";
+
+    /**
+     * The media type used for Smile responses.
+     */
+    public static final String APPLICATION_SMILE = "application/x-jackson-smile";
+
+    /**
+     * The number of rows after which the persistence context is cleared while streaming.
+     */
+    private static final int CLEAR_INTERVAL = 500;
+
+    private final TransactionTemplate readOnlyTransaction;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper cborMapper;
+    private final ObjectMapper smileMapper;
+
+    public ListingStreamer(PlatformTransactionManager transactionManager, EntityManager entityManager, ObjectMapper objectMapper) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.cborMapper = objectMapper.copyWith(new CBORFactory());
+        this.smileMapper = objectMapper.copyWith(new SmileFactory());
+    }
+
+    /**
+     * Creates a response body that streams the result of the given query as a JSON array.
+     *
+     * @param query  supplies the repository stream, it is opened inside a read-only transaction
+     * @param mapper maps each row to the object that is serialized
+     * @return the StreamingResponseBody writing the JSON array
+     */
+    public <E, D> StreamingResponseBody jsonArray(Supplier<Stream<E>> query, Function<E, D> mapper) {
+        return out -> write(query, mapper, false, objectMapper.createGenerator(out));
+    }
+
+    /**
+     * Creates a response body that writes rows held in memory as a JSON array.
+     *
+     * @param rows the rows, serialized as they are
+     * @return the StreamingResponseBody writing the JSON array
+     */
+    public StreamingResponseBody jsonArray(Collection<?> rows) {
+        return out -> write(rows.iterator(), false, objectMapper.createGenerator(out));
+    }
+
+    /**
+     * Creates a response body that streams the result of the given query as an array in a binary encoding.
+     *
+     * @param mediaType the encoding, either {@link #APPLICATION_CBOR} or {@link #APPLICATION_SMILE}
+     * @param query     supplies the repository stream, it is opened inside a read-only transaction
+     * @param mapper    maps each row to the object that is serialized
+     * @return the StreamingResponseBody writing the array
+     */
+    public <E, D> StreamingResponseBody binaryArray(MediaType mediaType, Supplier<Stream<E>> query, Function<E, D> mapper) {
+        ObjectMapper binaryMapper = mediaType.isCompatibleWith(MediaType.parseMediaType(APPLICATION_SMILE)) ? smileMapper : cborMapper;
+        return out -> write(query, mapper, false, binaryMapper.createGenerator(out));
+    }
+
+    /**
+     * Creates a response body that writes rows held in memory as an array in a binary encoding.
+     *
+     * @param mediaType the encoding, either {@link #APPLICATION_CBOR} or {@link #APPLICATION_SMILE}
+     * @param rows      the rows, serialized as they are
+     * @return the StreamingResponseBody writing the array
+     */
+    public StreamingResponseBody binaryArray(MediaType mediaType, Collection<?> rows) {
+        ObjectMapper binaryMapper = mediaType.isCompatibleWith(MediaType.parseMediaType(APPLICATION_SMILE)) ? smileMapper : cborMapper;
+        return out -> write(rows.iterator(), false, binaryMapper.createGenerator(out));
+    }
+
+    /**
+     * Selects the binary encoding to respond with, the first one of CBOR and Smile listed in the Accept header.
+     *
+     * @param accept the Accept header of the request
+     * @return the media type of the binary encoding, CBOR if the header names neither
+     */
+    public MediaType binaryMediaType(String accept) {
+        MediaType smile = MediaType.parseMediaType(APPLICATION_SMILE);
+        for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+            if (mediaType.equalsTypeAndSubtype(smile)) {
+                return smile;
+            }
+            if (mediaType.getSubtype().equals("cbor")) {
+                break;
+            }
+        }
+        return MediaType.parseMediaType(APPLICATION_CBOR);
+    }
+
+    /**
+     * Creates a response body that streams the result of the given query as NDJSON, one object per line.
+     *
+     * @param query  supplies the repository stream, it is opened inside a read-only transaction
+     * @param mapper maps each row to the object that is serialized
+     * @return the StreamingResponseBody writing the NDJSON lines
+     */
+    public <E, D> StreamingResponseBody ndjson(Supplier<Stream<E>> query, Function<E, D> mapper) {
+        return out -> write(query, mapper, true, objectMapper.createGenerator(out));
+    }
+
+    /**
+     * Creates a response body that writes rows held in memory as NDJSON, one object per line.
+     *
+     * @param rows the rows, serialized as they are
+     * @return the StreamingResponseBody writing the NDJSON lines
+     */
+    public StreamingResponseBody ndjson(Collection<?> rows) {
+        return out -> write(rows.iterator(), true, objectMapper.createGenerator(out));
+    }
+
+    private void write(Iterator<?> rows, boolean ndjson, JsonGenerator generator) throws IOException {
+        try (generator) {
+            if (ndjson) {
+                generator.setRootValueSeparator(null);
+            } else {
+                generator.writeStartArray();
+            }
+            while (rows.hasNext()) {
+                generator.writeObject(rows.next());
+                if (ndjson) {
+                    generator.writeRaw('\n');
+                }
+            }
+            if (!ndjson) {
+                generator.writeEndArray();
+            }
+        }
+    }
+
+    private <E, D> void write(Supplier<Stream<E>> query, Function<E, D> mapper, boolean ndjson, JsonGenerator generator) throws IOException {
+        try (generator) {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<E> rows = query.get()) {
+                    if (ndjson) {
+                        generator.setRootValueSeparator(null);
+                    } else {
+                        generator.writeStartArray();
+                    }
+                    int written = 0;
+                    for (Iterator<E> iterator = rows.iterator(); iterator.hasNext(); ) {
+                        generator.writeObject(mapper.apply(iterator.next()));
+                        if (ndjson) {
+                            generator.writeRaw('\n');
+                        }
+                        if (++written % CLEAR_INTERVAL == 0) {
+                            entityManager.clear();
+                        }
+                    }
+                    if (!ndjson) {
+                        generator.writeEndArray();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
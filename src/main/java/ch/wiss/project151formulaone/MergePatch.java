@@ -0,0 +1,92 @@
+package ch.wiss.project151formulaone;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The MergePatch class represents a JSON Merge Patch (RFC 7396) of an entity with flat fields, translated into the
+ * columns it sets.
+ *
+ * @param target the table and fields the patch applies to
+ * @param values the new values by column name, in the order of the patch; null values clear the column
+ */
+public record MergePatch(Target target, Map<String, Object> values) {
+    /**
+     * The media type of JSON Merge Patch documents.
+     */
+    public static final String APPLICATION_MERGE_PATCH_JSON = "application/merge-patch+json";
+
+    /**
+     * A field of the DTO that may be patched.
+     *
+     * @param column   the name of the column the field is stored in
+     * @param type     the type of the column, String or Long
+     * @param nullable whether the field may be cleared with null
+     */
+    public record Field(String column, Class<?> type, boolean nullable) {
+    }
+
+    /**
+     * The table a patch applies to.
+     *
+     * @param table     the name of the table
+     * @param returning the columns returned for the row before the patch
+     * @param fields    the fields that may be patched by their name in the DTO
+     */
+    public record Target(String table, List<String> returning, Map<String, Field> fields) {
+        /**
+         * Translates the members of a merge patch document into the columns they set. The ID is not a patchable
+         * field and is skipped.
+         *
+         * @param patch the merge patch document
+         * @return the MergePatch
+         * @throws IllegalArgumentException if the patch contains an unknown field, clears a field that must not be
+         *                                  null, or has a value of the wrong type
+         */
+        public MergePatch parse(Map<String, Object> patch) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            patch.forEach((name, value) -> {
+                if (name.equals("id")) {
+                    return;
+                }
+                Field field = fields.get(name);
+                if (field == null) {
+                    throw new IllegalArgumentException("Unknown field " + name);
+                }
+                if (value == null && !field.nullable()) {
+                    throw new IllegalArgumentException("Field " + name + " must not be null");
+                }
+                if (value != null && field.type() == Long.class && (value instanceof Integer || value instanceof Long)) {
+                    value = ((Number) value).longValue();
+                }
+                if (value != null && !field.type().isInstance(value)) {
+                    throw new IllegalArgumentException("Field " + name + " must be of type " + field.type().getSimpleName());
+                }
+                values.put(field.column(), value);
+            });
+            return new MergePatch(this, values);
+        }
+    }
+
+    /**
+     * Returns whether the patch sets no column at all, for example the empty patch {@code {}}.
+     *
+     * @return true if applying the patch would change nothing
+     */
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    /**
+     * Returns the value the patch sets for a column, or the given current value if the patch leaves it unchanged.
+     *
+     * @param column  the name of the column
+     * @param current the value of the column before the patch
+     * @return the value of the column after the patch
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T valueOr(String column, T current) {
+        return values.containsKey(column) ? (T) values.get(column) : current;
+    }
+}
@@ -0,0 +1,34 @@
+package ch.wiss.project151formulaone;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configures the request timing instrumentation that complements the metrics recorded by Spring Boot.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    /**
+     * Registers a repository invocation listener on every repository, adding the duration of each repository call to
+     * the {@link RequestTimings} of the current request. The per-method timings themselves are published by Spring
+     * Boot as the {@code spring.data.repository.invocations} timer.
+     */
+    @Bean
+    static BeanPostProcessor repositoryTimingPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> repositoryFactoryBean) {
+                    repositoryFactoryBean.addRepositoryFactoryCustomizer(factory -> factory.addInvocationListener(
+                            invocation -> RequestTimings.addRepository(invocation.getDuration(TimeUnit.NANOSECONDS))));
+                }
+                return bean;
+            }
+        };
+    }
+}
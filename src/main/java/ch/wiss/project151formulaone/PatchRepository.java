@@ -0,0 +1,19 @@
+package ch.wiss.project151formulaone;
+
+import java.util.Optional;
+
+/**
+ * Repository fragment applying a MergePatch with a single statement, without loading the entity.
+ */
+public interface PatchRepository {
+    /**
+     * Sets the columns of the patch and increments the version of a row with a single UPDATE statement, which also
+     * returns the row as it was before.
+     *
+     * @param patch           the patch to apply
+     * @param id              the ID of the row to patch
+     * @param expectedVersion the version the row must have, or null to patch any version
+     * @return the returning columns of the row before the patch, or empty if no row with the ID (and version) exists
+     */
+    Optional<Object[]> patch(MergePatch patch, long id, Long expectedVersion);
+}
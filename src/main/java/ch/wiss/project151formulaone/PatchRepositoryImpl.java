@@ -0,0 +1,45 @@
+package ch.wiss.project151formulaone;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Applies merge patches with H2's data change delta tables: {@code select ... from old table (update ...)} updates
+ * the row and returns its previous state in one round trip.
+ */
+public class PatchRepositoryImpl implements PatchRepository {
+    private final EntityManager entityManager;
+
+    public PatchRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Optional<Object[]> patch(MergePatch patch, long id, Long expectedVersion) {
+        StringBuilder sql = new StringBuilder("select ")
+                .append(String.join(", ", patch.target().returning()))
+                .append(" from old table (update ")
+                .append(patch.target().table())
+                .append(" set ");
+        for (String column : patch.values().keySet()) {
+            sql.append(column).append(" = :").append(column).append(", ");
+        }
+        sql.append("version = version + 1 where id = :id");
+        if (expectedVersion != null) {
+            sql.append(" and version = :version");
+        }
+        sql.append(')');
+
+        Query query = entityManager.createNativeQuery(sql.toString());
+        patch.values().forEach(query::setParameter);
+        query.setParameter("id", id);
+        if (expectedVersion != null) {
+            query.setParameter("version", expectedVersion);
+        }
+        List<?> rows = query.getResultList();
+        return rows.stream().findFirst().map(row -> (Object[]) row);
+    }
+}
@@ -0,0 +1,23 @@
+package ch.wiss.project151formulaone;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Repository fragment running specification queries that select DTO records instead of entities.
+ */
+public interface ProjectionRepository {
+    /**
+     * Retrieves the entities matching a specification as records, ordered by ID. Only the attributes named by the
+     * components of the record are selected and passed to its canonical constructor, so no entity is loaded into the
+     * persistence context.
+     *
+     * @param entityClass   the class of the entities to query
+     * @param specification the conditions the entities must match
+     * @param projection    the record class whose components name the selected attributes
+     * @param limit         the maximum number of records to return
+     * @return the matching records
+     */
+    <E, D extends Record> List<D> findAllProjected(Class<E> entityClass, Specification<E> specification, Class<D> projection, int limit);
+}
@@ -0,0 +1,42 @@
+package ch.wiss.project151formulaone;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.lang.reflect.RecordComponent;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds the projection queries with the criteria API, selecting the record through a constructor expression.
+ */
+public class ProjectionRepositoryImpl implements ProjectionRepository {
+    private final EntityManager entityManager;
+
+    public ProjectionRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public <E, D extends Record> List<D> findAllProjected(Class<E> entityClass, Specification<E> specification, Class<D> projection, int limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<D> query = builder.createQuery(projection);
+        Root<E> root = query.from(entityClass);
+        Selection<?>[] attributes = Arrays.stream(projection.getRecordComponents())
+                .map(RecordComponent::getName)
+                .map(root::get)
+                .toArray(Selection[]::new);
+        query.select(builder.construct(projection, attributes));
+        Predicate predicate = specification.toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(builder.asc(root.get("id")));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+}
@@ -0,0 +1,109 @@
+package ch.wiss.project151formulaone;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The RateLimitingFilter limits the rate of requests every client can send to the driver and team endpoints.
+ *
+ * Every client has a token bucket holding up to {@code formulaone.rate-limit.burst} tokens, refilled at
+ * {@code formulaone.rate-limit.requests-per-second}. A request takes a token; if the bucket is empty it is answered
+ * with TOO_MANY_REQUESTS and a Retry-After header giving the seconds until the next token, without reaching the
+ * controller. The bucket is kept as the time at which it will be full again (the generic cell rate algorithm), a
+ * single long that is updated with compare-and-set, so concurrent requests of a client never block each other.
+ *
+ * Clients are told apart by their remote address, or by the value of {@code formulaone.rate-limit.client-header} if
+ * it is set, for example X-Forwarded-For behind a proxy that sets it. The buckets of clients that have been idle are
+ * dropped as configured by {@code formulaone.rate-limit.client-spec}. Rejected requests are counted as
+ * {@code formulaone.rate-limit.rejected}. A rate of 0 disables the limit.
+ */
+@Component
+public class RateLimitingFilter extends OncePerRequestFilter {
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final String clientHeader;
+    private final Cache<String, AtomicLong> buckets;
+    private final Counter rejected;
+
+    public RateLimitingFilter(@Value("${formulaone.rate-limit.requests-per-second}") double requestsPerSecond,
+                              @Value("${formulaone.rate-limit.burst}") int burst,
+                              @Value("${formulaone.rate-limit.client-header}") String clientHeader,
+                              @Value("${formulaone.rate-limit.client-spec}") String clientSpec,
+                              MeterRegistry registry) {
+        this.intervalNanos = requestsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond) : 0;
+        this.burstNanos = intervalNanos * Math.max(1, burst);
+        this.clientHeader = clientHeader.isBlank() ? null : clientHeader;
+        this.buckets = Caffeine.from(clientSpec).build();
+        this.rejected = Counter.builder("formulaone.rate-limit.rejected")
+                .description("Requests rejected because the client exceeded its rate limit")
+                .register(registry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return intervalNanos == 0 || !(uri.startsWith("/api/driver") || uri.startsWith("/api/team"));
+    }
+
+    @Override
+    protected void doFilterInternal(@NotNull HttpServletRequest request, @NotNull HttpServletResponse response,
+                                    @NotNull FilterChain filterChain) throws ServletException, IOException {
+        long waitNanos = take(buckets.get(client(request), key -> new AtomicLong(System.nanoTime())));
+        if (waitNanos > 0) {
+            rejected.increment();
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, (waitNanos + 999_999_999) / 1_000_000_000)));
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write("Rate limit exceeded");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Takes a token from a bucket.
+     *
+     * @param bucket the time in nanoseconds at which the bucket will be full again
+     * @return 0 if a token was taken, otherwise the nanoseconds until the next token is available
+     */
+    private long take(AtomicLong bucket) {
+        while (true) {
+            long now = System.nanoTime();
+            long full = bucket.get();
+            long next = Math.max(full, now) + intervalNanos;
+            long waitNanos = next - now - burstNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (bucket.compareAndSet(full, next)) {
+                return 0;
+            }
+        }
+    }
+
+    private String client(HttpServletRequest request) {
+        String client = clientHeader == null ? null : request.getHeader(clientHeader);
+        if (client == null || client.isBlank()) {
+            return request.getRemoteAddr();
+        }
+        int comma = client.indexOf(',');
+        return (comma < 0 ? client : client.substring(0, comma)).trim();
+    }
+}
@@ -0,0 +1,350 @@
+package ch.wiss.project151formulaone;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * The ReadReplica is an in-memory copy of the driver and team tables, which answers reads while the
+ * DatabaseCircuitBreaker is open.
+ *
+ * The rows are kept as DriverDTO and TeamDTO objects in maps sorted by ID, so pages and searches can be answered the
+ * same way as by the database. The copy is kept current from the DriverChange and TeamChange events once their
+ * transaction has committed, and refreshed from the database every {@code formulaone.read-replica.refresh-interval-ms}
+ * and after imports, which catches writes that bypass the services. A refresh reads both tables in ID order and merges
+ * them into the maps in place, so the memory used by the copy does not double during a refresh. Changes that arrive
+ * while a refresh runs are applied again after it, since the refresh may have read an older state of their rows. A
+ * refresh requested while another one runs, such as the one after an import, makes the running refresh start over
+ * once it has finished, since it may have read the tables before the import. The refresh after an import runs in the
+ * background, so the import request does not wait for it. If a
+ * refresh after the first one finds rows that differ from the copy, the CollectionVersions of their collection are
+ * bumped, so the ETags of the listings reflect those writes too.
+ *
+ * The first refresh runs in the background right after startup. Until it has finished the copy is incomplete and
+ * reads cannot be answered from it. The countries and team IDs of the drivers are shared, so the copy of a million
+ * drivers takes roughly 160 MB of heap. Like the AggregateView, the replica is created eagerly even with lazy
+ * initialization.
+ */
+@Component
+@Lazy(false)
+public class ReadReplica {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final DriverRepository driverRepository;
+    private final TeamRepository teamRepository;
+    private final DatabaseCircuitBreaker breaker;
+    private final CollectionVersions versions;
+    private final TransactionTemplate snapshotTransaction;
+
+    private final ConcurrentNavigableMap<Long, DriverDTO> drivers = new ConcurrentSkipListMap<>();
+    private final ConcurrentNavigableMap<Long, TeamDTO> teams = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, String> countries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Long> teamIds = new ConcurrentHashMap<>();
+
+    /**
+     * The changes that arrived during the running refresh, or null if no refresh is running, guarded by the replica.
+     */
+    private List<Object> replay;
+
+    /**
+     * Whether a refresh was requested while one was running, guarded by the replica.
+     */
+    private boolean refreshAgain;
+
+    /**
+     * Whether a refresh has completed, so the copy contains every row.
+     */
+    private volatile boolean loaded;
+
+    public ReadReplica(DriverRepository driverRepository, TeamRepository teamRepository, DatabaseCircuitBreaker breaker,
+                       CollectionVersions versions, PlatformTransactionManager transactionManager) {
+        this.driverRepository = driverRepository;
+        this.teamRepository = teamRepository;
+        this.breaker = breaker;
+        this.versions = versions;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        // Both tables are read from the same snapshot, so no driver refers to a team missing from the copy
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * Reads both tables from the database and merges them into the copy, unless the database is known to be down.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${formulaone.read-replica.refresh-interval-ms}")
+    public void refresh() {
+        if (breaker.isOpen()) {
+            return;
+        }
+        synchronized (this) {
+            if (replay != null) {
+                refreshAgain = true;
+                return;
+            }
+            replay = new ArrayList<>();
+        }
+        while (refreshOnce()) {
+            log.debug("Refreshing the read replica again, as requested during the last refresh");
+        }
+    }
+
+    @Async
+    @EventListener
+    public void onDatasetImported(DatasetImported imported) {
+        refresh();
+    }
+
+    /**
+     * Runs one refresh, with the replay list already set up.
+     *
+     * @return whether another refresh was requested meanwhile and the replay list is set up for it
+     */
+    private boolean refreshOnce() {
+        long start = System.currentTimeMillis();
+        long call = breaker.startCall();
+        boolean complete = false;
+        boolean again;
+        try {
+            boolean[] modified = new boolean[2];
+            snapshotTransaction.executeWithoutResult(status -> {
+                try (Stream<TeamDTO> rows = teamRepository.streamAllDTOs()) {
+                    modified[0] = merge(teams, rows.iterator(), TeamDTO::id);
+                }
+                try (Stream<DriverDTO> rows = driverRepository.streamAllDTOs()) {
+                    modified[1] = merge(drivers, rows.map(this::share).iterator(), DriverDTO::id);
+                }
+            });
+            if (loaded && modified[0]) {
+                versions.teamsModified();
+            }
+            if (loaded && modified[1]) {
+                versions.driversModified();
+            }
+            complete = true;
+        } catch (DataAccessException | TransactionException e) {
+            if (DatabaseCircuitBreaker.isFailure(e)) {
+                breaker.recordFailure(call);
+            }
+            log.warn("Failed to refresh the read replica: {}", e.getMessage());
+        } finally {
+            synchronized (this) {
+                replay.forEach(this::apply);
+                loaded |= complete;
+                again = complete && refreshAgain;
+                refreshAgain = false;
+                replay = again ? new ArrayList<>() : null;
+            }
+        }
+        if (complete) {
+            log.info("Refreshed the read replica with {} teams and {} drivers in {} ms",
+                    teams.size(), drivers.size(), System.currentTimeMillis() - start);
+        }
+        return again;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onDriverChange(DriverChange change) {
+        apply(change);
+        if (replay != null) {
+            replay.add(change);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onTeamChange(TeamChange change) {
+        apply(change);
+        if (replay != null) {
+            replay.add(change);
+        }
+    }
+
+    /**
+     * Returns whether the copy is complete and can answer reads.
+     *
+     * @return true once the first refresh has completed
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Retrieves a driver by ID.
+     *
+     * @param id the ID of the driver
+     * @return the driver, or empty if no driver with the given ID exists
+     */
+    public Optional<DriverDTO> findDriver(long id) {
+        return Optional.ofNullable(drivers.get(id));
+    }
+
+    /**
+     * Searches drivers ordered by ID, like DriverService.search.
+     *
+     * @param country    the country of the drivers, or null
+     * @param namePrefix the prefix of the names of the drivers, or null
+     * @param teamId     the ID of the team of the drivers, or null
+     * @param after      the ID of the last driver of the previous page
+     * @param limit      the maximum number of drivers in the page
+     * @return the page of matching drivers
+     */
+    public List<DriverDTO> searchDrivers(String country, String namePrefix, Long teamId, long after, int limit) {
+        return page(drivers, after, limit, driver -> (country == null || country.equals(driver.country()))
+                && (namePrefix == null || driver.name().startsWith(namePrefix))
+                && (teamId == null || teamId.equals(driver.teamId())));
+    }
+
+    /**
+     * Returns all drivers ordered by ID. The collection is a live view of the copy.
+     *
+     * @return the drivers
+     */
+    public Collection<DriverDTO> drivers() {
+        return drivers.values();
+    }
+
+    /**
+     * Retrieves a team by ID.
+     *
+     * @param id the ID of the team
+     * @return the team, or empty if no team with the given ID exists
+     */
+    public Optional<TeamDTO> findTeam(long id) {
+        return Optional.ofNullable(teams.get(id));
+    }
+
+    /**
+     * Searches teams ordered by ID, like TeamService.search.
+     *
+     * @param country    the country of the teams, or null
+     * @param namePrefix the prefix of the names of the teams, or null
+     * @param after      the ID of the last team of the previous page
+     * @param limit      the maximum number of teams in the page
+     * @return the page of matching teams
+     */
+    public List<TeamDTO> searchTeams(String country, String namePrefix, long after, int limit) {
+        return page(teams, after, limit, team -> (country == null || country.equals(team.country()))
+                && (namePrefix == null || team.name().startsWith(namePrefix)));
+    }
+
+    /**
+     * Returns all teams ordered by ID. The collection is a live view of the copy.
+     *
+     * @return the teams
+     */
+    public Collection<TeamDTO> teams() {
+        return teams.values();
+    }
+
+    /**
+     * Retrieves a team together with its drivers. The drivers are found by scanning all of them.
+     *
+     * @param id the ID of the team
+     * @return the roster, or empty if no team with the given ID exists
+     */
+    public Optional<TeamRosterDTO> findRoster(long id) {
+        return findTeam(id).map(team -> new TeamRosterDTO(team.id(), team.name(), team.country(),
+                drivers.values().stream().filter(driver -> team.id().equals(driver.teamId())).toList()));
+    }
+
+    /**
+     * Returns all teams together with their drivers, ordered by team ID and driver ID like TeamService.streamRosters.
+     * The drivers are grouped by team in a single pass over all of them.
+     *
+     * @return the rosters
+     */
+    public List<TeamRosterDTO> rosters() {
+        Map<Long, List<DriverDTO>> byTeam = new HashMap<>();
+        for (DriverDTO driver : drivers.values()) {
+            if (driver.teamId() != null) {
+                byTeam.computeIfAbsent(driver.teamId(), key -> new ArrayList<>()).add(driver);
+            }
+        }
+        return teams.values().stream()
+                .map(team -> new TeamRosterDTO(team.id(), team.name(), team.country(), byTeam.getOrDefault(team.id(), List.of())))
+                .toList();
+    }
+
+    private void apply(Object change) {
+        if (change instanceof DriverChange driverChange) {
+            if (driverChange.after() != null) {
+                drivers.put(driverChange.id(), share(driverChange.after()));
+            } else {
+                drivers.remove(driverChange.id());
+            }
+        } else if (change instanceof TeamChange teamChange) {
+            if (teamChange.after() != null) {
+                teams.put(teamChange.id(), teamChange.after());
+            } else {
+                teams.remove(teamChange.id());
+            }
+        }
+    }
+
+    /**
+     * Replaces the country and team ID of a driver by the equal instances already held by the copy.
+     */
+    private DriverDTO share(DriverDTO driver) {
+        String country = driver.country() == null ? null : countries.computeIfAbsent(driver.country(), key -> key);
+        Long teamId = driver.teamId() == null ? null : teamIds.computeIfAbsent(driver.teamId(), key -> key);
+        return country == driver.country() && teamId == driver.teamId()
+                ? driver : new DriverDTO(driver.id(), driver.name(), country, teamId);
+    }
+
+    /**
+     * Merges rows ordered by ID into a map: rows that changed are replaced and IDs missing from the rows are removed.
+     *
+     * @return whether the map was modified
+     */
+    private static <T> boolean merge(ConcurrentNavigableMap<Long, T> map, Iterator<T> rows, Function<T, Long> id) {
+        boolean modified = false;
+        long previous = Long.MIN_VALUE;
+        while (rows.hasNext()) {
+            T row = rows.next();
+            Long rowId = id.apply(row);
+            Long next = map.higherKey(previous);
+            if (next != null && next < rowId) {
+                map.subMap(previous, false, rowId, false).clear();
+                modified = true;
+            }
+            if (!row.equals(map.get(rowId))) {
+                map.put(rowId, row);
+                modified = true;
+            }
+            previous = rowId;
+        }
+        ConcurrentNavigableMap<Long, T> removed = map.tailMap(previous, false);
+        if (!removed.isEmpty()) {
+            removed.clear();
+            modified = true;
+        }
+        return modified;
+    }
+
+    private static <T> List<T> page(ConcurrentNavigableMap<Long, T> map, long after, int limit, Predicate<T> filter) {
+        return map.tailMap(after, false).values().stream().filter(filter).limit(limit).toList();
+    }
+}
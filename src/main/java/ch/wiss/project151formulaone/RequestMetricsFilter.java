@@ -0,0 +1,133 @@
+package ch.wiss.project151formulaone;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The RequestMetricsFilter breaks the latency of every request down into the time spent in JDBC (H2), in Hibernate
+ * and in serializing the response.
+ *
+ * The phases are published as the {@code http.server.requests.phases} timer, tagged with the phase, the HTTP method
+ * and the URI pattern, next to the {@code http.server.requests} timer recorded by Spring Boot itself. Requests
+ * taking longer than {@code formulaone.metrics.slow-request-threshold} are logged together with their breakdown.
+ * The actuator endpoints and the long-lived change feed are not measured.
+ *
+ * It is also registered as response body advice, which is invoked right before the message converters serialize
+ * the body returned by a controller.
+ */
+@ControllerAdvice
+public class RequestMetricsFilter extends OncePerRequestFilter implements ResponseBodyAdvice<Object> {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final MeterRegistry registry;
+    private final Duration slowRequestThreshold;
+
+    public RequestMetricsFilter(MeterRegistry registry,
+                                @Value("${formulaone.metrics.slow-request-threshold}") Duration slowRequestThreshold) {
+        this.registry = registry;
+        this.slowRequestThreshold = slowRequestThreshold;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator") || request.getRequestURI().startsWith("/api/changes");
+    }
+
+    @Override
+    protected void doFilterInternal(@NotNull HttpServletRequest request, @NotNull HttpServletResponse response,
+                                    @NotNull FilterChain filterChain) throws ServletException, IOException {
+        RequestTimings timings = RequestTimings.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestTimings.stop();
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(request, response, timings);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                record(request, response, timings);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, HttpServletResponse response, RequestTimings timings) {
+        long end = System.nanoTime();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        long serializationNanos = timings.serializationNanos(end);
+
+        phase("jdbc", request.getMethod(), uri, timings.jdbcNanos);
+        phase("hibernate", request.getMethod(), uri, timings.hibernateNanos());
+        phase("serialization", request.getMethod(), uri, serializationNanos);
+
+        long totalNanos = end - timings.startNanos;
+        if (totalNanos >= slowRequestThreshold.toNanos()) {
+            log.warn("Slow request {} {} -> {} took {} ms (jdbc {} ms, hibernate {} ms, serialization {} ms)",
+                    request.getMethod(), request.getRequestURI(), response.getStatus(),
+                    TimeUnit.NANOSECONDS.toMillis(totalNanos), TimeUnit.NANOSECONDS.toMillis(timings.jdbcNanos),
+                    TimeUnit.NANOSECONDS.toMillis(timings.hibernateNanos()), TimeUnit.NANOSECONDS.toMillis(serializationNanos));
+        }
+    }
+
+    private void phase(String phase, String method, String uri, long nanos) {
+        Timer.builder("http.server.requests.phases")
+                .description("Time spent per phase of an HTTP request")
+                .tag("phase", phase)
+                .tag("method", method)
+                .tag("uri", uri)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public boolean supports(@NotNull MethodParameter returnType, @NotNull Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, @NotNull MethodParameter returnType, @NotNull MediaType selectedContentType,
+                                  @NotNull Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  @NotNull ServerHttpRequest request, @NotNull ServerHttpResponse response) {
+        RequestTimings.markSerializationStart();
+        return body;
+    }
+}
@@ -0,0 +1,78 @@
+package ch.wiss.project151formulaone;
+
+/**
+ * The RequestTimings class accumulates where the time of the request handled by the current thread is spent.
+ *
+ * The JDBC time is reported by the {@link JdbcTimingSessionListener}, the repository time (JDBC plus Hibernate) by a
+ * repository invocation listener and the start of the response serialization by the {@link RequestMetricsFilter}.
+ * Work done outside of the request thread, for example by a streamed response body, is not attributed.
+ */
+final class RequestTimings {
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+    final long startNanos = System.nanoTime();
+    long jdbcNanos;
+    long repositoryNanos;
+    long serializationStartNanos;
+
+    private RequestTimings() {
+    }
+
+    /**
+     * Starts accumulating the timings of a new request on the current thread.
+     *
+     * @return the timings of the new request
+     */
+    static RequestTimings start() {
+        RequestTimings timings = new RequestTimings();
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    /**
+     * Stops accumulating timings on the current thread.
+     */
+    static void stop() {
+        CURRENT.remove();
+    }
+
+    static void addJdbc(long nanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.jdbcNanos += nanos;
+        }
+    }
+
+    static void addRepository(long nanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.repositoryNanos += nanos;
+        }
+    }
+
+    static void markSerializationStart() {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null && timings.serializationStartNanos == 0) {
+            timings.serializationStartNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Returns the time spent in Hibernate, that is the repository time without the JDBC time.
+     *
+     * @return the Hibernate time in nanoseconds
+     */
+    long hibernateNanos() {
+        return Math.max(0, repositoryNanos - jdbcNanos);
+    }
+
+    /**
+     * Returns the time spent serializing and writing the response body.
+     *
+     * @param endNanos the time at which the response was completed
+     * @return the serialization time in nanoseconds, or 0 if the body was not written by a message converter
+     */
+    long serializationNanos(long endNanos) {
+        return serializationStartNanos == 0 ? 0 : endNanos - serializationStartNanos;
+    }
+}
@@ -0,0 +1,59 @@
+package ch.wiss.project151formulaone;
+
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Building blocks for the search queries of drivers and teams.
+ *
+ * Every method returns null for an absent filter, which {@link Specification#allOf} skips, so a search only contains
+ * the conditions that were actually requested and the database can use the index of each of them. All conditions
+ * compare case-sensitively, as a case-insensitive comparison could not use the indexes.
+ */
+final class SearchSpecifications {
+    private static final char ESCAPE = '\\';
+
+    private SearchSpecifications() {
+    }
+
+    /**
+     * Matches entities whose attribute equals the given value.
+     *
+     * @param attribute the name of the attribute
+     * @param value     the value, or null to match everything
+     * @return the specification, or null if no value is given
+     */
+    static <T> Specification<T> equal(String attribute, Object value) {
+        if (value == null) {
+            return null;
+        }
+        return (root, query, builder) -> builder.equal(root.get(attribute), value);
+    }
+
+    /**
+     * Matches entities whose attribute starts with the given prefix. Wildcards in the prefix are matched literally.
+     *
+     * @param attribute the name of the attribute
+     * @param prefix    the prefix, or null to match everything
+     * @return the specification, or null if no prefix is given
+     */
+    static <T> Specification<T> startsWith(String attribute, String prefix) {
+        if (prefix == null || prefix.isEmpty()) {
+            return null;
+        }
+        String pattern = prefix
+                .replace(String.valueOf(ESCAPE), "" + ESCAPE + ESCAPE)
+                .replace("%", ESCAPE + "%")
+                .replace("_", ESCAPE + "_") + "%";
+        return (root, query, builder) -> builder.like(root.get(attribute), pattern, ESCAPE);
+    }
+
+    /**
+     * Matches entities with an ID greater than the given cursor (keyset pagination).
+     *
+     * @param after the ID of the last entity of the previous page
+     * @return the specification
+     */
+    static <T> Specification<T> idGreaterThan(long after) {
+        return (root, query, builder) -> builder.greaterThan(root.get("id"), after);
+    }
+}
@@ -0,0 +1,83 @@
+package ch.wiss.project151formulaone;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * The SingleFlight coalesces concurrent loads of the same key into one.
+ *
+ * The first caller for a key runs the loader; callers arriving for the same key while it runs wait for its result
+ * instead of running the loader themselves, and receive the same value or exception. Once the load has finished the
+ * key is forgotten, so the next caller loads again: nothing is cached here, the SingleFlight only keeps a burst of
+ * cache misses for a hot key from turning into a burst of identical queries. The number of coalesced calls is
+ * published as the {@code formulaone.reads.coalesced} counter, tagged with the entity.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the loaded values
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    public SingleFlight(String entity, MeterRegistry registry) {
+        this.coalesced = Counter.builder("formulaone.reads.coalesced")
+                .description("Reads that waited for a load of the same key in flight instead of querying the database")
+                .tag("entity", entity)
+                .register(registry);
+    }
+
+    /**
+     * Loads the value of a key, or waits for the load of that key already in flight.
+     *
+     * @param key    the key to load
+     * @param loader loads the value if no load of the key is in flight
+     * @return the loaded value
+     */
+    public V load(K key, Supplier<V> loader) {
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, load);
+        if (running != null) {
+            coalesced.increment();
+            return join(running);
+        }
+        try {
+            V value = loader.get();
+            load.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, load);
+        }
+    }
+
+    /**
+     * Lets the next caller for a key load it again instead of waiting for the load in flight, for example because the
+     * value changed after that load started. Callers already waiting still receive the result of the running load.
+     *
+     * @param key the key to forget
+     */
+    public void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    private static <V> V join(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
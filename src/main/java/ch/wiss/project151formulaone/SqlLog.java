@@ -0,0 +1,78 @@
+package ch.wiss.project151formulaone;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The SqlLog logs a sample of the executed SQL statements, instead of every statement as the
+ * {@code org.hibernate.SQL} logger does.
+ *
+ * A statement is logged if it took at least the slow threshold, or if it is the n-th statement for a sample rate of
+ * n. Either rule is disabled with 0. Hibernate passes every statement to the SqlLog as StatementInspector, registered
+ * through the {@code hibernate.session_factory.statement_inspector} property, and the JdbcTimingSessionListener
+ * reports its execution time. Bind parameters are never logged. The settings are shared by all sessions and can be
+ * changed at runtime through the SqlLogEndpoint. While both rules are disabled, the SqlLog costs two volatile reads
+ * per statement.
+ */
+public class SqlLog implements StatementInspector {
+    private static final Logger log = LoggerFactory.getLogger(SqlLog.class);
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+    private static final AtomicLong STATEMENTS = new AtomicLong();
+
+    private static volatile int sampleRate;
+    private static volatile long slowThresholdNanos;
+
+    @Override
+    public String inspect(String sql) {
+        if (enabled()) {
+            CURRENT.set(sql);
+        }
+        return sql;
+    }
+
+    /**
+     * Records the execution of the statement last inspected on the current thread, and logs it if it is sampled.
+     *
+     * @param nanos the execution time of the statement
+     */
+    static void executed(long nanos) {
+        if (!enabled()) {
+            return;
+        }
+        String sql = CURRENT.get();
+        if (sql == null) {
+            return;
+        }
+        long threshold = slowThresholdNanos;
+        int rate = sampleRate;
+        if (threshold > 0 && nanos >= threshold) {
+            log.warn("Slow SQL took {} ms: {}", TimeUnit.NANOSECONDS.toMillis(nanos), sql);
+        } else if (rate > 0 && STATEMENTS.incrementAndGet() % rate == 0) {
+            log.info("Sampled SQL took {} ms: {}", TimeUnit.NANOSECONDS.toMillis(nanos), sql);
+        }
+    }
+
+    static int getSampleRate() {
+        return sampleRate;
+    }
+
+    static void setSampleRate(int sampleRate) {
+        SqlLog.sampleRate = Math.max(0, sampleRate);
+    }
+
+    static long getSlowThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowThresholdNanos);
+    }
+
+    static void setSlowThresholdMillis(long slowThresholdMillis) {
+        SqlLog.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, slowThresholdMillis));
+    }
+
+    private static boolean enabled() {
+        return sampleRate > 0 || slowThresholdNanos > 0;
+    }
+}
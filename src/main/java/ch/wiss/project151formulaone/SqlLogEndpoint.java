@@ -0,0 +1,55 @@
+package ch.wiss.project151formulaone;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint {@code /actuator/sqllog} reading and changing the settings of the SqlLog at runtime.
+ *
+ * The initial settings are taken from {@code formulaone.sql-log.sample-rate} and
+ * {@code formulaone.sql-log.slow-threshold-ms}. The endpoint is created eagerly even with lazy initialization, since
+ * it applies them. For example {@code POST /actuator/sqllog} with {@code {"sampleRate": 100}} logs every
+ * hundredth statement from then on. The endpoint is not secured, so it is only exposed over HTTP by the dev profile
+ * and, on a management port bound to 127.0.0.1, by the prod profile.
+ */
+@Component
+@Lazy(false)
+@Endpoint(id = "sqllog")
+public class SqlLogEndpoint {
+
+    public SqlLogEndpoint(@Value("${formulaone.sql-log.sample-rate}") int sampleRate,
+                          @Value("${formulaone.sql-log.slow-threshold-ms}") long slowThresholdMillis) {
+        SqlLog.setSampleRate(sampleRate);
+        SqlLog.setSlowThresholdMillis(slowThresholdMillis);
+    }
+
+    @ReadOperation
+    public Map<String, Object> settings() {
+        return Map.of("sampleRate", SqlLog.getSampleRate(), "slowThresholdMs", SqlLog.getSlowThresholdMillis());
+    }
+
+    /**
+     * Changes the given settings, leaving out a setting keeps its current value.
+     *
+     * @param sampleRate      log every n-th statement, or 0 for none
+     * @param slowThresholdMs log every statement taking at least this many milliseconds, or 0 for none
+     * @return the settings now in effect
+     */
+    @WriteOperation
+    public Map<String, Object> update(@Nullable Integer sampleRate, @Nullable Long slowThresholdMs) {
+        if (sampleRate != null) {
+            SqlLog.setSampleRate(sampleRate);
+        }
+        if (slowThresholdMs != null) {
+            SqlLog.setSlowThresholdMillis(slowThresholdMs);
+        }
+        return settings();
+    }
+}
@@ -0,0 +1,53 @@
+package ch.wiss.project151formulaone;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rest controller for the aggregate counts of drivers and teams. The counts are served from the AggregateView and
+ * never query the database.
+ */
+@RestController
+@RequestMapping("api/statistics")
+public class StatisticsRestController {
+    final AggregateView aggregates;
+
+    public StatisticsRestController(AggregateView aggregates) {
+        this.aggregates = aggregates;
+    }
+
+    /**
+     * Retrieves the number of drivers of every team, ordered by team ID. Drivers without a team are counted in a last
+     * entry without team ID.
+     *
+     * @return the driver counts per team
+     */
+    @GetMapping("/drivers-per-team")
+    public List<TeamDriverCount> driversPerTeam() {
+        return aggregates.driversPerTeam();
+    }
+
+    /**
+     * Retrieves the number of drivers of every country, ordered by country.
+     *
+     * @return the driver counts by country
+     */
+    @GetMapping("/drivers-per-country")
+    public Map<String, Long> driversPerCountry() {
+        return aggregates.driversPerCountry();
+    }
+
+    /**
+     * Retrieves the number of teams of every country, ordered by country.
+     *
+     * @return the team counts by country
+     */
+    @GetMapping("/teams-per-country")
+    public Map<String, Long> teamsPerCountry() {
+        return aggregates.teamsPerCountry();
+    }
+}
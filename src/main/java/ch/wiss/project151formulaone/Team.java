@@ -13,13 +13,14 @@ public class Team {
      *
      * The {@code id} field is annotated with {@code @Id} to indicate that it is the primary key for the entity. It is also
      * annotated with {@code @GeneratedValue} to specify the strategy for generating the identifier value. In this case,
-     * the strategy is set to {@code GenerationType.IDENTITY}, which means that the identifier value will be automatically
-     * generated by the underlying database.
+     * the strategy is set to {@code GenerationType.SEQUENCE} using the "team_seq" database sequence. Identifiers are
+     * allocated in blocks before the insert is executed, which allows inserts of new teams to be batched.
      *
      * @see Team
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "team_seq")
+    @SequenceGenerator(name = "team_seq", sequenceName = "team_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -46,6 +47,19 @@ public class Team {
     @Column(name = "country", nullable = false)
     private String country;
 
+    /**
+     * Represents the version of a team entity.
+     *
+     * The {@code version} field is annotated with {@code @Version}, so Hibernate increments it with every update and
+     * only updates or deletes the row if its version is still the one that was read. The version is exposed as the
+     * ETag of the team.
+     *
+     * @see Team
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
     /**
      * Retrieves the name of the team.
      *
@@ -98,4 +112,15 @@ public class Team {
     public Long getId() {
         return id;
     }
+
+    /**
+     * Retrieves the version of the team.
+     *
+     * This method returns the version of the team, which is incremented with every update.
+     *
+     * @return The version of the team as a long.
+     */
+    public long getVersion() {
+        return version;
+    }
 }
@@ -0,0 +1,13 @@
+package ch.wiss.project151formulaone;
+
+/**
+ * The TeamChange class is the application event published by TeamService for every team that is created, updated or
+ * deleted. Listeners should use {@code @TransactionalEventListener} to only see committed changes.
+ *
+ * @param kind   the kind of change
+ * @param id     the ID of the team
+ * @param before the team before the change, or null if it was created
+ * @param after  the team after the change, or null if it was deleted
+ */
+public record TeamChange(ChangeKind kind, long id, TeamDTO before, TeamDTO after) {
+}
@@ -0,0 +1,8 @@
+package ch.wiss.project151formulaone;
+
+/**
+ * The TeamDriverCount class represents the number of drivers of a team.
+ * The team ID and name are null for the drivers without a team.
+ */
+public record TeamDriverCount(Long teamId, String teamName, long drivers) {
+}
@@ -0,0 +1,8 @@
+package ch.wiss.project151formulaone;
+
+/**
+ * The TeamDriverRow class represents a single row of the join between a team and its drivers.
+ * The driver columns are null for a team without drivers.
+ */
+public record TeamDriverRow(Long teamId, String teamName, String teamCountry, Long driverId, String driverName, String driverCountry) {
+}
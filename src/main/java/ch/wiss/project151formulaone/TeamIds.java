@@ -0,0 +1,91 @@
+package ch.wiss.project151formulaone;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The TeamIds are the IDs of all existing teams, kept in memory to validate the team references of drivers without a
+ * query.
+ *
+ * The IDs are loaded once at startup and kept current from the TeamChange events, once the transaction has committed.
+ * An ID that is not known is looked up in the database before a team reference is rejected, and added if the team
+ * exists, so teams created by another instance or by writes that bypass the services are found as well; only
+ * references to unknown teams cost a query. A team deleted concurrently or behind the services may still be known; in
+ * that case the foreign key of the driver table rejects the write. Like the AggregateView, the IDs are loaded eagerly
+ * even with lazy initialization, and loaded again after imports. Imports never delete teams, so adding the IDs
+ * suffices.
+ */
+@Component
+@Lazy(false)
+public class TeamIds {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final TeamRepository teams;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+    public TeamIds(TeamRepository teams, PlatformTransactionManager transactionManager) {
+        this.teams = teams;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public synchronized void load() {
+        readOnlyTransaction.executeWithoutResult(status -> ids.addAll(teams.findAllIds()));
+        log.info("Loaded {} team IDs", ids.size());
+    }
+
+    @EventListener
+    public void onDatasetImported(DatasetImported imported) {
+        load();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onTeamChange(TeamChange change) {
+        if (change.after() != null) {
+            ids.add(change.id());
+        } else {
+            ids.remove(change.id());
+        }
+    }
+
+    /**
+     * Returns whether a team with the given ID exists, asking the database if the ID is not known.
+     *
+     * @param id the ID of the team
+     * @return true if the team exists
+     */
+    public boolean contains(long id) {
+        if (ids.contains(id)) {
+            return true;
+        }
+        if (teams.existsById(id)) {
+            ids.add(id);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks the team reference of a driver.
+     *
+     * @param teamId the ID of the team of the driver, or null for a driver without team
+     * @throws IllegalArgumentException if no team with the given ID exists
+     */
+    public void check(Long teamId) {
+        if (teamId != null && !contains(teamId)) {
+            throw new IllegalArgumentException("Team of ID " + teamId + " not found");
+        }
+    }
+}
@@ -1,6 +1,104 @@
 package ch.wiss.project151formulaone;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
-public interface TeamRepository extends JpaRepository<Team, Long> {
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+public interface TeamRepository extends JpaRepository<Team, Long>, JpaSpecificationExecutor<Team>, PatchRepository, ProjectionRepository {
+    /**
+     * Retrieves the teams with an ID greater than the given cursor as TeamDTO objects, ordered by ID (keyset
+     * pagination), without loading the entities.
+     *
+     * @param after the ID of the last team of the previous page
+     * @param limit the maximum number of teams to return
+     * @return the next page of teams
+     */
+    @Query("select new ch.wiss.project151formulaone.TeamDTO(t.id, t.name, t.country) from Team t where t.id > :after order by t.id")
+    List<TeamDTO> findDTOsByIdGreaterThan(long after, Limit limit);
+
+    /**
+     * Streams all teams as TeamDTO objects ordered by ID, without loading the entities. The stream must be consumed
+     * and closed inside a transaction.
+     *
+     * @return a stream over all teams
+     */
+    @Query("select new ch.wiss.project151formulaone.TeamDTO(t.id, t.name, t.country) from Team t order by t.id")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    Stream<TeamDTO> streamAllDTOs();
+
+    /**
+     * Retrieves the teams with the given IDs as TeamDTO objects, without loading the entities.
+     *
+     * @param ids the IDs to look up
+     * @return the teams of the given IDs that exist
+     */
+    @Query("select new ch.wiss.project151formulaone.TeamDTO(t.id, t.name, t.country) from Team t where t.id in :ids")
+    List<TeamDTO> findDTOsByIdIn(Collection<Long> ids);
+
+    /**
+     * Retrieves the IDs of all teams without loading the entities.
+     *
+     * @return the IDs of all teams
+     */
+    @Query("select t.id from Team t")
+    List<Long> findAllIds();
+
+    /**
+     * Retrieves the version of a team without loading the entity.
+     *
+     * @param id the ID of the team
+     * @return the version of the team, or empty if no team with the given ID exists
+     */
+    @Query("select t.version from Team t where t.id = :id")
+    Optional<Long> findVersionById(long id);
+
+    /**
+     * Retrieves a team joined with its drivers in a single query, ordered by driver ID.
+     *
+     * @param id the ID of the team
+     * @return one row per driver of the team, a single row without driver if the team has none, or no rows if the
+     * team does not exist
+     */
+    @Query("select new ch.wiss.project151formulaone.TeamDriverRow(t.id, t.name, t.country, d.id, d.name, d.country) "
+            + "from Team t left join Driver d on d.teamId = t.id where t.id = :id order by d.id")
+    List<TeamDriverRow> findRosterRows(long id);
+
+    /**
+     * Streams all teams joined with their drivers in a single query, ordered by team ID and driver ID.
+     * The stream must be consumed and closed inside a transaction.
+     *
+     * @return a stream over one row per driver, plus a row without driver for every team without drivers
+     */
+    @Query("select new ch.wiss.project151formulaone.TeamDriverRow(t.id, t.name, t.country, d.id, d.name, d.country) "
+            + "from Team t left join Driver d on d.teamId = t.id order by t.id, d.id")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<TeamDriverRow> streamRosterRows();
+
+    /**
+     * Counts the teams of every country with a single group by query.
+     *
+     * @return the number of teams per country, for every country with at least one team
+     */
+    @Query("select new ch.wiss.project151formulaone.CountryCount(t.country, count(t)) from Team t group by t.country")
+    List<CountryCount> countPerCountry();
+
+    /**
+     * Counts the drivers of every team with a single group by query over the join of teams and drivers.
+     *
+     * @return the number of drivers per team, including the teams without drivers
+     */
+    @Query("select new ch.wiss.project151formulaone.TeamDriverCount(t.id, t.name, count(d.id)) "
+            + "from Team t left join Driver d on d.teamId = t.id group by t.id, t.name")
+    List<TeamDriverCount> countDriversPerTeam();
 }
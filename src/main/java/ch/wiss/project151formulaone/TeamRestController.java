@@ -3,49 +3,324 @@ package ch.wiss.project151formulaone;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 
 
 /**
  * The TeamRestController class is a REST controller that handles HTTP requests related to teams.
  * It provides methods for retrieving, creating, updating, and deleting team entities.
+ *
+ * Reads of teams run through the DatabaseCircuitBreaker. While the database is unavailable, they are answered from the
+ * ReadReplica and marked as stale; the full listing with drivers then groups the drivers of the ReadReplica by team.
+ * Writes are then rejected with SERVICE_UNAVAILABLE by the CircuitBreakerFilter.
  */
 @RestController
 @RequestMapping("api/team")
 public class TeamRestController {
+    /**
+     * The page size used by {@code /all} when only a cursor is given.
+     */
+    static final int DEFAULT_PAGE_SIZE = 100;
+
+    /**
+     * The largest page size accepted by {@code /all}.
+     */
+    static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * The largest number of operations accepted by {@code /batch}.
+     */
+    static final int MAX_BATCH_SIZE = 1000;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
-    final TeamRepository teams;
+    final TeamService teams;
+    final ListingStreamer listings;
+    final CollectionVersions versions;
+    final WriteBehindQueue writes;
+    final HistoryService history;
+    final DatabaseCircuitBreaker breaker;
+    final ReadReplica replica;
 
     /**
      * The TeamRestController class is a REST controller that handles HTTP requests related to teams.
      * It provides methods for retrieving, creating, updating, and deleting team entities.
      */
-    public TeamRestController(TeamRepository teams) {
+    public TeamRestController(TeamService teams, ListingStreamer listings, CollectionVersions versions, WriteBehindQueue writes,
+                              HistoryService history, DatabaseCircuitBreaker breaker, ReadReplica replica) {
         this.teams = teams;
+        this.listings = listings;
+        this.versions = versions;
+        this.writes = writes;
+        this.history = history;
+        this.breaker = breaker;
+        this.replica = replica;
     }
 
     /**
      * Retrieves all teams.
      *
-     * This method retrieves all teams from the database and converts them to a list of TeamDTO objects using the fromDomain method.
-     * The list of TeamDTO objects is then returned wrapped in a ResponseEntity with an HTTP OK status.
+     * This method streams all teams from the database straight into a JSON array of TeamDTO objects using the
+     * fromDomain method, so the response never has to be held in memory as a whole. The listing carries an ETag that
+     * changes with every write to the teams; if it matches {@code If-None-Match}, a NOT_MODIFIED status is returned
+     * without querying the teams.
+     *
+     * @param request The current request, used to evaluate {@code If-None-Match}.
+     * @return A ResponseEntity streaming the TeamDTO objects representing all teams.
+     */
+    @GetMapping(value = "/all", params = {"!after", "!limit"})
+    public ResponseEntity<StreamingResponseBody> getAllTeams(WebRequest request) {
+        String etag = versions.teamsETag("json");
+        if (request.checkNotModified(etag)) {
+            return notModified();
+        }
+        return breaker.stream(() -> ResponseEntity
+                        .ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(listings.jsonArray(teams::streamAll, Function.identity())),
+                () -> replica.isLoaded() ? ResponseEntity
+                        .ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(listings.jsonArray(replica.teams())) : breaker.unavailable());
+    }
+
+    /**
+     * Retrieves all teams in a binary encoding.
+     *
+     * The teams are streamed like the JSON listing, encoded as CBOR or Smile depending on the Accept header. The binary
+     * encodings are smaller and cheaper to produce than JSON, which suits service-to-service consumers.
+     *
+     * @param accept  The Accept header of the request, selecting the encoding.
+     * @param request The current request, used to evaluate {@code If-None-Match}.
+     * @return A ResponseEntity streaming the TeamDTO objects representing all teams.
+     */
+    @GetMapping(value = "/all", params = {"!after", "!limit"},
+            produces = {ListingStreamer.APPLICATION_CBOR, ListingStreamer.APPLICATION_SMILE})
+    public ResponseEntity<StreamingResponseBody> getAllTeamsBinary(@RequestHeader(HttpHeaders.ACCEPT) String accept, WebRequest request) {
+        MediaType mediaType = listings.binaryMediaType(accept);
+        String etag = versions.teamsETag(mediaType.getSubtype());
+        if (request.checkNotModified(etag)) {
+            return notModified();
+        }
+        return breaker.stream(() -> ResponseEntity
+                        .ok()
+                        .contentType(mediaType)
+                        .body(listings.binaryArray(mediaType, teams::streamAll, Function.identity())),
+                () -> replica.isLoaded() ? ResponseEntity
+                        .ok()
+                        .contentType(mediaType)
+                        .body(listings.binaryArray(mediaType, replica.teams())) : breaker.unavailable());
+    }
+
+    /**
+     * Retrieves all teams together with their drivers in a binary encoding, CBOR or Smile depending on the Accept
+     * header.
+     *
+     * @param accept  The Accept header of the request, selecting the encoding.
+     * @param request The current request, used to evaluate {@code If-None-Match}.
+     * @return A ResponseEntity streaming the TeamRosterDTO objects representing all teams and their drivers.
+     */
+    @GetMapping(value = "/all", params = {"expand=drivers", "!after", "!limit"},
+            produces = {ListingStreamer.APPLICATION_CBOR, ListingStreamer.APPLICATION_SMILE})
+    public ResponseEntity<StreamingResponseBody> getAllTeamsWithDriversBinary(@RequestHeader(HttpHeaders.ACCEPT) String accept,
+                                                                              WebRequest request) {
+        MediaType mediaType = listings.binaryMediaType(accept);
+        String etag = versions.rostersETag(mediaType.getSubtype());
+        if (request.checkNotModified(etag)) {
+            return notModified();
+        }
+        return breaker.stream(() -> ResponseEntity
+                        .ok()
+                        .contentType(mediaType)
+                        .body(listings.binaryArray(mediaType, teams::streamRosters, Function.identity())),
+                () -> replica.isLoaded() ? ResponseEntity
+                        .ok()
+                        .contentType(mediaType)
+                        .body(listings.binaryArray(mediaType, replica.rosters())) : breaker.unavailable());
+    }
+
+    /**
+     * Retrieves all teams together with their drivers.
+     *
+     * This method streams the rosters of all teams as a JSON array of TeamRosterDTO objects. The rosters are built
+     * from a single join query over teams and drivers, so no per-team or per-driver lookups are needed.
+     *
+     * @param request The current request, used to evaluate {@code If-None-Match}.
+     * @return A ResponseEntity streaming the TeamRosterDTO objects representing all teams and their drivers.
+     */
+    @GetMapping(value = "/all", params = {"expand=drivers", "!after", "!limit"})
+    public ResponseEntity<StreamingResponseBody> getAllTeamsWithDrivers(WebRequest request) {
+        String etag = versions.rostersETag("json");
+        if (request.checkNotModified(etag)) {
+            return notModified();
+        }
+        return breaker.stream(() -> ResponseEntity
+                        .ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(listings.jsonArray(teams::streamRosters, Function.identity())),
+                () -> replica.isLoaded() ? ResponseEntity
+                        .ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(listings.jsonArray(replica.rosters())) : breaker.unavailable());
+    }
+
+    /**
+     * Streams all teams together with their drivers as newline delimited JSON, one TeamRosterDTO per line.
+     *
+     * @param request The current request, used to evaluate {@code If-None-Match}.
+     * @return A ResponseEntity streaming a TeamRosterDTO object per line.
+     */
+    @GetMapping(value = "/all", params = {"expand=drivers", "!after", "!limit"}, produces = ListingStreamer.APPLICATION_NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAllWithDrivers(WebRequest request) {
+        String etag = versions.rostersETag("ndjson");
+        if (request.checkNotModified(etag)) {
+            return notModified();
+        }
+        return breaker.stream(() -> ResponseEntity
+                        .ok()
+                        .contentType(MediaType.parseMediaType(ListingStreamer.APPLICATION_NDJSON))
+                        .body(listings.ndjson(teams::streamRosters, Function.identity())),
+                () -> replica.isLoaded() ? ResponseEntity
+                        .ok()
+                        .contentType(MediaType.parseMediaType(ListingStreamer.APPLICATION_NDJSON))
+                        .body(listings.ndjson(replica.rosters())) : breaker.unavailable());
+    }
+
+    /**
+     * Retrieves a single page of teams.
+     *
+     * The teams are ordered by ID and the page starts after the given ID (keyset pagination). If the page is full,
+     * a {@code Link} header with {@code rel="next"} points to the following page.
      *
-     * @return A ResponseEntity containing a list of TeamDTO objects representing all teams.
+     * @param after The ID of the last team of the previous page, or null to start at the beginning.
+     * @param limit The maximum number of teams in the page, or null for the default page size.
+     * @param expand Must be absent, expanding drivers is only supported for the full listing.
+     * @param request The current request, used to evaluate {@code If-None-Match}.
+     * @return A ResponseEntity containing the page of TeamDTO objects, or BAD_REQUEST if the limit is out of range.
      */
     @GetMapping("/all")
-    public ResponseEntity<List<TeamDTO>> getAllTeams() {
-        List<TeamDTO> teamDTOs = teams.findAll().stream()
-                .map(TeamDTO::fromDomain)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(teamDTOs);
+    public ResponseEntity<?> getPage(@RequestParam(required = false) Long after, @RequestParam(required = false) Integer limit,
+                                     @RequestParam(required = false) String expand, WebRequest request) {
+        if (expand != null) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body("Expand is only supported for the full listing");
+        }
+
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        String etag = versions.teamsETag("json");
+        if (request.checkNotModified(etag)) {
+            return notModified();
+        }
+
+        Function<List<TeamDTO>, ResponseEntity<?>> page = teamDTOs -> {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (teamDTOs.size() == pageSize) {
+                long cursor = teamDTOs.get(teamDTOs.size() - 1).id();
+                response.header(HttpHeaders.LINK, "</api/team/all?after=" + cursor + "&limit=" + pageSize + ">; rel=\"next\"");
+            }
+            return response.body(teamDTOs);
+        };
+        long cursor = after == null ? 0 : after;
+        return breaker.read(() -> page.apply(teams.findPage(cursor, pageSize)),
+                () -> replica.isLoaded() ? page.apply(replica.searchTeams(null, null, cursor, pageSize)) : breaker.unavailable());
+    }
+
+    /**
+     * Searches teams by country and name prefix.
+     *
+     * The filters can be combined and are translated into a single query, ordered by ID and starting after the given
+     * ID (keyset pagination). If the page is full, a {@code Link} header with {@code rel="next"} points to the
+     * following page of the same search.
+     *
+     * @param country The country of the teams, matched exactly.
+     * @param name    The prefix of the names of the teams, matched case-sensitively.
+     * @param after   The ID of the last team of the previous page, or null to start at the beginning.
+     * @param limit   The maximum number of teams in the page, or null for the default page size.
+     * @param request The current request, used to evaluate {@code If-None-Match}.
+     * @return A ResponseEntity containing the matching TeamDTO objects, or BAD_REQUEST if the limit is out of range.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> search(@RequestParam(required = false) String country, @RequestParam(required = false) String name,
+                                    @RequestParam(required = false) Long after, @RequestParam(required = false) Integer limit,
+                                    WebRequest request) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        String etag = versions.teamsETag("json");
+        if (request.checkNotModified(etag)) {
+            return notModified();
+        }
+
+        Function<List<TeamDTO>, ResponseEntity<?>> page = teamDTOs -> {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (teamDTOs.size() == pageSize) {
+                String next = UriComponentsBuilder.fromPath("/api/team/search")
+                        .queryParamIfPresent("country", Optional.ofNullable(country))
+                        .queryParamIfPresent("name", Optional.ofNullable(name))
+                        .queryParam("after", teamDTOs.get(teamDTOs.size() - 1).id())
+                        .queryParam("limit", pageSize)
+                        .encode()
+                        .toUriString();
+                response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+            }
+            return response.body(teamDTOs);
+        };
+        long cursor = after == null ? 0 : after;
+        return breaker.read(() -> page.apply(teams.search(country, name, cursor, pageSize)),
+                () -> replica.isLoaded() ? page.apply(replica.searchTeams(country, name, cursor, pageSize)) : breaker.unavailable());
+    }
+
+    /**
+     * Streams all teams as newline delimited JSON.
+     *
+     * Each line of the response body contains a single TeamDTO object, which lets clients process the listing
+     * incrementally.
+     *
+     * @param request The current request, used to evaluate {@code If-None-Match}.
+     * @return A ResponseEntity streaming a TeamDTO object per line.
+     */
+    @GetMapping(value = "/all", params = {"!after", "!limit"}, produces = ListingStreamer.APPLICATION_NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAll(WebRequest request) {
+        String etag = versions.teamsETag("ndjson");
+        if (request.checkNotModified(etag)) {
+            return notModified();
+        }
+        return breaker.stream(() -> ResponseEntity
+                        .ok()
+                        .contentType(MediaType.parseMediaType(ListingStreamer.APPLICATION_NDJSON))
+                        .body(listings.ndjson(teams::streamAll, Function.identity())),
+                () -> replica.isLoaded() ? ResponseEntity
+                        .ok()
+                        .contentType(MediaType.parseMediaType(ListingStreamer.APPLICATION_NDJSON))
+                        .body(listings.ndjson(replica.teams())) : breaker.unavailable());
     }
 
     /**
@@ -53,17 +328,88 @@ public class TeamRestController {
      *
      * This method retrieves a team from the database based on the provided ID. If a team with the specified ID exists,
      * a {@code TeamDTO} representing the team is returned. Otherwise, an empty {@code ResponseEntity} is returned.
+     * The version of the team is sent as its ETag; if it matches {@code If-None-Match}, a NOT_MODIFIED status is
+     * returned without loading the team. If the database is unavailable, the team is read from the ReadReplica instead
+     * and the response is marked as stale, without an ETag.
      *
      * @param id The ID of the team to retrieve.
+     * @param request The current request, used to evaluate {@code If-None-Match}.
      * @return A {@code ResponseEntity} containing a {@code TeamDTO} if the team is found, or an empty {@code ResponseEntity} if the team is not found.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<?> get(@PathVariable long id) {
-        Optional<TeamDTO> maybeTeamDTO = teams
-                .findById(id)
-                .map(TeamDTO::fromDomain);
-        return ResponseEntity
-                .of(maybeTeamDTO);
+    public ResponseEntity<?> get(@PathVariable long id, WebRequest request) {
+        return breaker.read(() -> {
+            Optional<Long> maybeVersion = teams.findVersion(id);
+            if (maybeVersion.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            String etag = ETags.forVersion(maybeVersion.get());
+            if (request.checkNotModified(etag)) {
+                return notModified();
+            }
+
+            Optional<TeamDTO> maybeTeamDTO = teams.findById(id, maybeVersion.get());
+            return maybeTeamDTO
+                    .<ResponseEntity<?>>map(teamDTO -> ResponseEntity.ok().body(teamDTO))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        }, () -> replica.isLoaded() ? replica.findTeam(id)
+                .<ResponseEntity<?>>map(teamDTO -> ResponseEntity.ok().body(teamDTO))
+                .orElseGet(() -> ResponseEntity.notFound().build()) : breaker.unavailable());
+    }
+
+    /**
+     * Retrieves a team as it was at the given time, from the history of the team.
+     *
+     * @param id   The ID of the team to retrieve.
+     * @param asOf The time, as an ISO-8601 instant such as 2024-03-01T12:00:00Z.
+     * @return A {@code ResponseEntity} containing the team as of that time, or NOT_FOUND if the team did not exist then.
+     */
+    @GetMapping(value = "/{id}", params = "asOf")
+    public ResponseEntity<?> getAsOf(@PathVariable long id, @RequestParam Instant asOf) {
+        return history.findTeamAsOf(id, asOf)
+                .<ResponseEntity<?>>map(teamDTO -> ResponseEntity.ok().body(teamDTO))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Retrieves a team by ID together with its drivers.
+     *
+     * The team and its drivers are loaded with a single join query, which uses the index on the team ID of the
+     * drivers. If no team with the specified ID exists, a NOT_FOUND status is returned. The roster carries the ETag of
+     * the roster listing, since it changes with writes to either teams or drivers.
+     *
+     * @param id The ID of the team to retrieve.
+     * @param request The current request, used to evaluate {@code If-None-Match}.
+     * @return A {@code ResponseEntity} containing a {@code TeamRosterDTO} if the team is found, or NOT_FOUND otherwise.
+     */
+    @GetMapping("/{id}/drivers")
+    public ResponseEntity<?> getDrivers(@PathVariable long id, WebRequest request) {
+        String etag = versions.rostersETag("json");
+        if (request.checkNotModified(etag)) {
+            return notModified();
+        }
+
+        return breaker.read(() -> teams.findRoster(id)
+                        .<ResponseEntity<?>>map(teamRosterDTO -> ResponseEntity.ok().body(teamRosterDTO))
+                        .orElseGet(() -> ResponseEntity.notFound().build()),
+                () -> replica.isLoaded() ? replica.findRoster(id)
+                        .<ResponseEntity<?>>map(teamRosterDTO -> ResponseEntity.ok().body(teamRosterDTO))
+                        .orElseGet(() -> ResponseEntity.notFound().build()) : breaker.unavailable());
+    }
+
+    /**
+     * Retrieves a team together with the drivers it had at the given time, from the history of teams and drivers.
+     *
+     * @param id   The ID of the team to retrieve.
+     * @param asOf The time, as an ISO-8601 instant such as 2024-03-01T12:00:00Z.
+     * @return A {@code ResponseEntity} containing the {@code TeamRosterDTO} as of that time, or NOT_FOUND if the team
+     * did not exist then.
+     */
+    @GetMapping(value = "/{id}/drivers", params = "asOf")
+    public ResponseEntity<?> getDriversAsOf(@PathVariable long id, @RequestParam Instant asOf) {
+        return history.findRosterAsOf(id, asOf)
+                .<ResponseEntity<?>>map(teamRosterDTO -> ResponseEntity.ok().body(teamRosterDTO))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     /**
@@ -87,32 +433,39 @@ public class TeamRestController {
                     .body("Team ID must be null");
         }
 
-        Team newTeam = new Team();
-        newTeam.setName(teamDTO.name());
-        newTeam.setCountry(teamDTO.country());
-
-        teams.save(newTeam);
+        TeamDTO newTeamDTO = teams.create(teamDTO);
 
         return ResponseEntity
-                .created(URI.create("/api/team/" + newTeam.getId()))
-                .body(TeamDTO.fromDomain(newTeam));
+                .created(URI.create("/api/team/" + newTeamDTO.id()))
+                .body(newTeamDTO);
     }
 
     /**
      * Delete a team by its ID.
      *
      * This method deletes a team with the specified ID. If the team is found and deleted successfully,
-     * it returns an HTTP OK status. If the team is not found, it returns an HTTP NOT_FOUND status.
+     * it returns an HTTP OK status. If the team is not found, it returns an HTTP NOT_FOUND status. If an
+     * {@code If-Match} header is given and the ETag of the team no longer matches, it returns PRECONDITION_FAILED. A
+     * team that still has drivers cannot be deleted, the foreign key of the drivers rejects the delete with CONFLICT.
      *
      * @param id The ID of the team to be deleted.
-     * @return An HTTP response with the corresponding status (OK or NOT_FOUND).
+     * @param ifMatch The ETag the team must have, or null.
+     * @return An HTTP response with the corresponding status (OK, NOT_FOUND, CONFLICT or PRECONDITION_FAILED).
      */
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> delete(@PathVariable long id) {
-        if (teams.existsById(id)) {
-            teams.deleteById(id);
-            log.info("Deleted Resource {}", id);
-            return new ResponseEntity<>(HttpStatus.OK);
+    public ResponseEntity<?> delete(@PathVariable long id, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        writes.writeQueuedTeam(id);
+        try {
+            if (teams.delete(id, ETags.requiredVersion(ifMatch))) {
+                log.info("Deleted Resource {}", id);
+                return new ResponseEntity<>(HttpStatus.OK);
+            }
+        } catch (OptimisticLockingFailureException e) {
+            return modified(id, ifMatch);
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity
+                    .status(HttpStatus.CONFLICT)
+                    .body("Team of ID " + id + " still has drivers");
         }
         return new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
@@ -120,30 +473,164 @@ public class TeamRestController {
     /**
      * Updates a team with the given ID.
      *
+     * If an {@code If-Match} header is given, the team is only updated if its ETag still matches, otherwise a
+     * PRECONDITION_FAILED status is returned. A team modified concurrently by another request results in
+     * PRECONDITION_FAILED with {@code If-Match} and CONFLICT without.
+     *
+     * With {@code Prefer: respond-async} and without {@code If-Match}, the update is queued in the WriteBehindQueue
+     * and an ACCEPTED status is returned with a WriteTicket, or TOO_MANY_REQUESTS if the queue is full. Otherwise an
+     * update of the team still queued is written first, so it cannot overwrite this update when the queue is flushed.
+     *
      * @param id      The ID of the team to update.
      * @param teamDTO The updated information for the team.
+     * @param ifMatch The ETag the team must have, or null.
+     * @param prefer  The Prefer header, requesting an asynchronous update with respond-async, or null.
      * @return ResponseEntity with the updated team if it exists, or an error message if the team does not exist or if the ID in the path does not match the ID in the DTO.
      */
     @PutMapping("/{id}")
-    public ResponseEntity<?> update(@PathVariable long id, @RequestBody TeamDTO teamDTO) {
+    public ResponseEntity<?> update(@PathVariable long id, @RequestBody TeamDTO teamDTO,
+                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                    @RequestHeader(value = "Prefer", required = false) String prefer) {
         if (teamDTO.id() != null && teamDTO.id() != id) {
             return ResponseEntity
                     .status(HttpStatus.I_AM_A_TEAPOT)
                     .body("Path Variable of id not equal to Team ID");
         }
+        if (ifMatch == null && WriteBehindQueue.respondAsync(prefer)) {
+            return accepted(writes.updateTeam(id, teamDTO));
+        }
+        writes.writeQueuedTeam(id);
 
-        Optional<Team> maybeTeam = teams.findById(id);
-        if (maybeTeam.isPresent()) {
-            Team team = maybeTeam.get();
-            team.setName(teamDTO.name());
-            team.setCountry(teamDTO.country());
-            teams.save(team);
+        Optional<TeamDTO> maybeTeamDTO;
+        try {
+            maybeTeamDTO = teams.update(id, teamDTO, ETags.requiredVersion(ifMatch));
+        } catch (OptimisticLockingFailureException e) {
+            return modified(id, ifMatch);
+        }
+        if (maybeTeamDTO.isPresent()) {
             return ResponseEntity
-                    .ok(TeamDTO.fromDomain(team));
+                    .ok(maybeTeamDTO.get());
         } else {
             return ResponseEntity
                     .status(HttpStatus.NOT_FOUND)
                     .body("Team of ID " + id + " not found");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Partially updates a team using a JSON Merge Patch (RFC 7396).
+     *
+     * Only the members present in the patch are changed, and they are written with a single UPDATE statement without
+     * loading the team first. Whether the team exists follows from the number of updated rows.
+     *
+     * If the patch contains an ID that does not match the ID in the path, an I_AM_A_TEAPOT status is returned. If it
+     * contains an unknown member, a null name or country, or a value of the wrong type, a BAD_REQUEST status is
+     * returned. If {@code If-Match} is given and no longer matches the ETag of the team, a PRECONDITION_FAILED status
+     * is returned.
+     *
+     * @param id      The ID of the team to patch.
+     * @param patch   The merge patch document.
+     * @param ifMatch The ETag the team must have, or null.
+     * @return ResponseEntity with the patched team if it exists, or an error message otherwise.
+     */
+    @PatchMapping(value = "/{id}", consumes = {MergePatch.APPLICATION_MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<?> patch(@PathVariable long id, @RequestBody Map<String, Object> patch,
+                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Object patchId = patch.get("id");
+        if (patchId != null && !(patchId instanceof Number number && number.longValue() == id)) {
+            return ResponseEntity
+                    .status(HttpStatus.I_AM_A_TEAPOT)
+                    .body("Path Variable of id not equal to Team ID");
+        }
+        writes.writeQueuedTeam(id);
+
+        Optional<TeamDTO> maybeTeamDTO;
+        try {
+            maybeTeamDTO = teams.patch(id, patch, ETags.requiredVersion(ifMatch));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            return modified(id, ifMatch);
+        }
+        if (maybeTeamDTO.isPresent()) {
+            return ResponseEntity
+                    .ok(maybeTeamDTO.get());
+        } else {
+            return ResponseEntity
+                    .status(HttpStatus.NOT_FOUND)
+                    .body("Team of ID " + id + " not found");
+        }
+    }
+
+    /**
+     * Creates, updates and deletes several teams with a single request.
+     *
+     * All operations of the batch run in one transaction and are sent to the database as JDBC batch statements. The
+     * response contains a BatchItemResult per operation; invalid operations are reported with their own status and do
+     * not prevent the others. If the database rejects the batch, for example because a deleted team still has drivers,
+     * nothing is written and a CONFLICT status is returned. Batches with more than {@link #MAX_BATCH_SIZE} operations
+     * are rejected with a BAD_REQUEST status.
+     *
+     * @param batch The BatchRequest containing the TeamDTO objects to create and update and the IDs to delete.
+     * @return A ResponseEntity with the result of every operation, or an error message.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> batch(@RequestBody BatchRequest<TeamDTO> batch) {
+        if (batch.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body("Batch must not contain more than " + MAX_BATCH_SIZE + " operations");
+        }
+        writeQueued(batch);
+
+        try {
+            return ResponseEntity
+                    .ok(teams.batch(batch));
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity
+                    .status(HttpStatus.CONFLICT)
+                    .body("Batch rejected: " + e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    private ResponseEntity<?> accepted(Optional<WriteTicket> ticket) {
+        if (ticket.isEmpty()) {
+            return ResponseEntity
+                    .status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(writes.retryAfterSeconds()))
+                    .body("Write queue is full");
+        }
+        return ResponseEntity
+                .accepted()
+                .location(URI.create("/api/tickets/" + ticket.get().ticket()))
+                .header("Preference-Applied", "respond-async")
+                .body(ticket.get());
+    }
+
+    private void writeQueued(BatchRequest<TeamDTO> batch) {
+        if (batch.update() != null) {
+            batch.update().stream()
+                    .filter(update -> update != null && update.id() != null)
+                    .forEach(update -> writes.writeQueuedTeam(update.id()));
+        }
+        if (batch.delete() != null) {
+            batch.delete().stream()
+                    .filter(Objects::nonNull)
+                    .forEach(writes::writeQueuedTeam);
+        }
+    }
+
+    private static <T> ResponseEntity<T> notModified() {
+        return ResponseEntity
+                .status(HttpStatus.NOT_MODIFIED)
+                .build();
+    }
+
+    private static ResponseEntity<?> modified(long id, String ifMatch) {
+        return ResponseEntity
+                .status(ifMatch == null ? HttpStatus.CONFLICT : HttpStatus.PRECONDITION_FAILED)
+                .body("Team of ID " + id + " has been modified");
+    }
+}
@@ -0,0 +1,67 @@
+package ch.wiss.project151formulaone;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The TeamRosterDTO class represents a data transfer object for a team together with its drivers.
+ */
+public record TeamRosterDTO(Long id, String name, String country, List<DriverDTO> drivers) {
+
+    /**
+     * Builds the roster of a single team from the rows of the team/driver join.
+     *
+     * @param rows the rows of one team, ordered by driver ID
+     * @return the roster, or empty if there are no rows
+     */
+    public static @NotNull Optional<TeamRosterDTO> fromRows(List<TeamDriverRow> rows) {
+        return group(rows.stream()).findFirst();
+    }
+
+    /**
+     * Lazily groups a stream of team/driver join rows into rosters. Rows of the same team must be consecutive, so only
+     * the roster currently being built is held in memory.
+     *
+     * @param rows the rows, ordered by team ID
+     * @return a stream of rosters in the order of the rows
+     */
+    public static @NotNull Stream<TeamRosterDTO> group(Stream<TeamDriverRow> rows) {
+        Iterator<TeamDriverRow> iterator = rows.iterator();
+        Iterator<TeamRosterDTO> rosters = new Iterator<>() {
+            private TeamDriverRow next = iterator.hasNext() ? iterator.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public TeamRosterDTO next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                TeamDriverRow first = next;
+                List<DriverDTO> drivers = new ArrayList<>();
+                while (next != null && next.teamId().equals(first.teamId())) {
+                    if (next.driverId() != null) {
+                        drivers.add(new DriverDTO(next.driverId(), next.driverName(), next.driverCountry(), next.teamId()));
+                    }
+                    next = iterator.hasNext() ? iterator.next() : null;
+                }
+                return new TeamRosterDTO(first.teamId(), first.teamName(), first.teamCountry(), drivers);
+            }
+        };
+        return StreamSupport
+                .stream(Spliterators.spliteratorUnknownSize(rosters, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(rows::close);
+    }
+}
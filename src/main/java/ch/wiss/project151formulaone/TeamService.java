@@ -0,0 +1,372 @@
+package ch.wiss.project151formulaone;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static ch.wiss.project151formulaone.BatchItemResult.Operation.CREATE;
+import static ch.wiss.project151formulaone.BatchItemResult.Operation.DELETE;
+import static ch.wiss.project151formulaone.BatchItemResult.Operation.UPDATE;
+import static ch.wiss.project151formulaone.CacheConfiguration.TEAMS;
+import static ch.wiss.project151formulaone.CacheConfiguration.TEAM_PAGES;
+
+/**
+ * Service providing cached read-through access to teams.
+ *
+ * Teams are cached as TeamDTO objects together with their version by ID, and keyset pages are cached by cursor and
+ * limit. Every write keeps the caches correct: the written team is evicted from the team cache and all cached pages
+ * are dropped. A cached team is only returned if its version is still the one in the database.
+ * A TeamChange event is published for every created, updated or deleted team.
+ */
+@Service
+public class TeamService {
+    /**
+     * The fields of a team that can be changed with a merge patch.
+     */
+    private static final MergePatch.Target PATCHABLE = new MergePatch.Target("team",
+            List.of("id", "name", "country"),
+            Map.of(
+                    "name", new MergePatch.Field("name", String.class, false),
+                    "country", new MergePatch.Field("country", String.class, false)));
+
+    final TeamRepository teams;
+    final CacheManager cacheManager;
+    final ApplicationEventPublisher events;
+    final SingleFlight<Long, Optional<Versioned<TeamDTO>>> loads;
+    final SingleFlight<Long, Optional<Long>> versionLoads;
+
+    public TeamService(TeamRepository teams, CacheManager cacheManager, ApplicationEventPublisher events,
+                       MeterRegistry registry) {
+        this.teams = teams;
+        this.cacheManager = cacheManager;
+        this.events = events;
+        this.loads = new SingleFlight<>("team", registry);
+        this.versionLoads = new SingleFlight<>("team", registry);
+    }
+
+    /**
+     * Retrieves a team by ID, going to the database only if the team is not cached with the given version. A cached
+     * team of another version is replaced by the one loaded. Concurrent cache misses for the same ID share a single
+     * query.
+     *
+     * @param id      The ID of the team.
+     * @param version The current version of the team, see findVersion.
+     * @return The team, or empty if no team with the given ID exists.
+     */
+    public Optional<TeamDTO> findById(long id, long version) {
+        Cache cache = cacheManager.getCache(TEAMS);
+        Versioned<?> cached = cache.get(id, Versioned.class);
+        if (cached != null && cached.version() == version) {
+            return Optional.of((TeamDTO) cached.value());
+        }
+        return loads.load(id, () -> {
+            // Cached before the load completes, so readers arriving after it find the team without another query
+            Optional<Versioned<TeamDTO>> loaded = teams.findById(id)
+                    .map(team -> new Versioned<>(TeamDTO.fromDomain(team), team.getVersion()));
+            loaded.ifPresentOrElse(found -> cache.put(id, found), () -> cache.evict(id));
+            return loaded;
+        }).map(Versioned::value);
+    }
+
+    /**
+     * Retrieves a page of teams ordered by ID, going to the database only if the page is not cached.
+     *
+     * @param after The ID of the last team of the previous page.
+     * @param limit The maximum number of teams in the page.
+     * @return The page of teams.
+     */
+    @Cacheable(cacheNames = TEAM_PAGES, key = "#after + ':' + #limit")
+    @Transactional(readOnly = true)
+    public List<TeamDTO> findPage(long after, int limit) {
+        return teams.findDTOsByIdGreaterThan(after, Limit.of(limit));
+    }
+
+    /**
+     * Searches teams by country and name prefix with a single query, ordered by ID (keyset pagination).
+     * Absent filters are left out of the query. The result is not cached.
+     *
+     * @param country    The country of the teams, or null.
+     * @param namePrefix The prefix of the names of the teams, or null.
+     * @param after      The ID of the last team of the previous page.
+     * @param limit      The maximum number of teams in the page.
+     * @return The page of matching teams.
+     */
+    @Transactional(readOnly = true)
+    public List<TeamDTO> search(String country, String namePrefix, long after, int limit) {
+        Specification<Team> specification = Specification.allOf(
+                SearchSpecifications.idGreaterThan(after),
+                SearchSpecifications.equal("country", country),
+                SearchSpecifications.startsWith("name", namePrefix));
+        return teams.findAllProjected(Team.class, specification, TeamDTO.class, limit);
+    }
+
+    /**
+     * Streams all teams ordered by ID, bypassing the cache. The stream must be consumed inside a transaction.
+     *
+     * @return A stream over all teams.
+     */
+    public Stream<TeamDTO> streamAll() {
+        return teams.streamAllDTOs();
+    }
+
+    /**
+     * Retrieves the version of a team without loading it, used as the ETag of the team. Concurrent lookups of the same
+     * ID share a single query.
+     *
+     * @param id The ID of the team.
+     * @return The version of the team, or empty if no team with the given ID exists.
+     */
+    public Optional<Long> findVersion(long id) {
+        return versionLoads.load(id, () -> teams.findVersionById(id));
+    }
+
+    /**
+     * Makes version lookups that start after a write of a team query the database again, rather than wait for a lookup
+     * that may have read the version before the write.
+     *
+     * @param change The committed change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTeamChange(TeamChange change) {
+        versionLoads.forget(change.id());
+    }
+
+    /**
+     * Retrieves a team together with its drivers using a single join query.
+     *
+     * @param id The ID of the team.
+     * @return The roster of the team, or empty if no team with the given ID exists.
+     */
+    public Optional<TeamRosterDTO> findRoster(long id) {
+        return TeamRosterDTO.fromRows(teams.findRosterRows(id));
+    }
+
+    /**
+     * Streams all teams together with their drivers from a single join query, bypassing the cache.
+     * The stream must be consumed inside a transaction.
+     *
+     * @return A stream over the rosters of all teams, ordered by team ID.
+     */
+    public Stream<TeamRosterDTO> streamRosters() {
+        return TeamRosterDTO.group(teams.streamRosterRows());
+    }
+
+    /**
+     * Creates a new team with the name and country of the given TeamDTO.
+     *
+     * @param teamDTO The TeamDTO object containing the information for the new team.
+     * @return The created team including its generated ID.
+     */
+    @Transactional
+    @CacheEvict(cacheNames = TEAM_PAGES, allEntries = true)
+    public TeamDTO create(TeamDTO teamDTO) {
+        Team newTeam = new Team();
+        newTeam.setName(teamDTO.name());
+        newTeam.setCountry(teamDTO.country());
+        TeamDTO created = TeamDTO.fromDomain(teams.save(newTeam));
+        events.publishEvent(new TeamChange(ChangeKind.CREATE, created.id(), null, created));
+        return created;
+    }
+
+    /**
+     * Updates the name and country of an existing team.
+     *
+     * @param id              The ID of the team to update.
+     * @param teamDTO         The updated information for the team.
+     * @param expectedVersion The version the team must have, or null to update any version.
+     * @return The updated team, or empty if no team with the given ID exists.
+     * @throws OptimisticLockingFailureException If the team does not have the expected version, or was modified
+     *                                           concurrently.
+     */
+    @Transactional
+    @Caching(evict = {@CacheEvict(cacheNames = TEAMS, key = "#id"),
+            @CacheEvict(cacheNames = TEAM_PAGES, allEntries = true)})
+    public Optional<TeamDTO> update(long id, TeamDTO teamDTO, Long expectedVersion) {
+        return teams.findById(id).map(team -> {
+            checkVersion(team, expectedVersion);
+            TeamDTO before = TeamDTO.fromDomain(team);
+            team.setName(teamDTO.name());
+            team.setCountry(teamDTO.country());
+            TeamDTO after = TeamDTO.fromDomain(teams.save(team));
+            events.publishEvent(new TeamChange(ChangeKind.UPDATE, id, before, after));
+            return after;
+        });
+    }
+
+    /**
+     * Applies a JSON Merge Patch to the name and country of an existing team.
+     *
+     * Only the columns present in the patch are written, with a single UPDATE statement that does not load the
+     * team first and returns its previous state for the TeamChange event. Whether the team exists follows from the
+     * affected row count; its version is only looked up if the statement did not match and a version was expected.
+     * A patch without fields writes nothing and publishes no event; it only returns the current team.
+     *
+     * @param id              the ID of the team to patch
+     * @param mergePatch      the merge patch document, members set to null clear the field
+     * @param expectedVersion the version the team must have, or null to patch any version
+     * @return the patched team, or empty if no team with the given ID exists
+     * @throws IllegalArgumentException          if the patch contains an unknown field, clears a field that must not
+     *                                           be null, or has a value of the wrong type
+     * @throws OptimisticLockingFailureException if the team does not have the expected version
+     */
+    @Transactional
+    @Caching(evict = {@CacheEvict(cacheNames = TEAMS, key = "#id"),
+            @CacheEvict(cacheNames = TEAM_PAGES, allEntries = true)})
+    public Optional<TeamDTO> patch(long id, Map<String, Object> mergePatch, Long expectedVersion) {
+        MergePatch patch = PATCHABLE.parse(mergePatch);
+        if (patch.isEmpty()) {
+            return teams.findById(id).map(team -> {
+                checkVersion(team, expectedVersion);
+                return TeamDTO.fromDomain(team);
+            });
+        }
+        Optional<Object[]> previous = teams.patch(patch, id, expectedVersion);
+        if (previous.isEmpty()) {
+            if (expectedVersion != null && teams.findVersionById(id).isPresent()) {
+                throw new OptimisticLockingFailureException("Team of ID " + id + " does not have version " + expectedVersion);
+            }
+            return Optional.empty();
+        }
+        Object[] row = previous.get();
+        TeamDTO before = new TeamDTO((Long) row[0], (String) row[1], (String) row[2]);
+        TeamDTO after = new TeamDTO(id, patch.valueOr("name", before.name()), patch.valueOr("country", before.country()));
+        events.publishEvent(new TeamChange(ChangeKind.UPDATE, id, before, after));
+        return Optional.of(after);
+    }
+
+    /**
+     * Deletes a team by ID.
+     *
+     * @param id              The ID of the team to delete.
+     * @param expectedVersion The version the team must have, or null to delete any version.
+     * @return True if the team existed and was deleted, false otherwise.
+     * @throws OptimisticLockingFailureException If the team does not have the expected version, or was modified
+     *                                           concurrently.
+     */
+    @Transactional
+    @Caching(evict = {@CacheEvict(cacheNames = TEAMS, key = "#id"),
+            @CacheEvict(cacheNames = TEAM_PAGES, allEntries = true)})
+    public boolean delete(long id, Long expectedVersion) {
+        Optional<Team> team = teams.findById(id);
+        if (team.isEmpty()) {
+            return false;
+        }
+        checkVersion(team.get(), expectedVersion);
+        teams.delete(team.get());
+        events.publishEvent(new TeamChange(ChangeKind.DELETE, id, TeamDTO.fromDomain(team.get()), null));
+        return true;
+    }
+
+    /**
+     * Executes the create, update and delete operations of a batch in a single transaction.
+     *
+     * New teams receive their IDs from the sequence before they are inserted and the teams to update are loaded with a
+     * single query, so all inserts and updates are sent as JDBC batches when the transaction is flushed. The teams to
+     * delete are removed with a single bulk delete statement. Invalid operations are reported in the result and do not
+     * affect the others.
+     *
+     * @param batch The operations to execute.
+     * @return The result of every operation, in request order per operation kind.
+     */
+    @Transactional
+    @CacheEvict(cacheNames = TEAM_PAGES, allEntries = true)
+    public List<BatchItemResult> batch(BatchRequest<TeamDTO> batch) {
+        List<BatchItemResult> results = new ArrayList<>();
+        List<TeamChange> changes = new ArrayList<>();
+
+        List<TeamDTO> create = orEmpty(batch.create());
+        for (int i = 0; i < create.size(); i++) {
+            TeamDTO teamDTO = create.get(i);
+            if (teamDTO.id() != null) {
+                results.add(new BatchItemResult(CREATE, i, teamDTO.id(), HttpStatus.BAD_REQUEST.value(), "Team ID must be null"));
+                continue;
+            }
+            Team team = new Team();
+            team.setName(teamDTO.name());
+            team.setCountry(teamDTO.country());
+            teams.save(team);
+            changes.add(new TeamChange(ChangeKind.CREATE, team.getId(), null, TeamDTO.fromDomain(team)));
+            results.add(new BatchItemResult(CREATE, i, team.getId(), HttpStatus.CREATED.value(), null));
+        }
+
+        List<TeamDTO> update = orEmpty(batch.update());
+        Map<Long, Team> existing = teams.findAllById(update.stream().map(TeamDTO::id).filter(Objects::nonNull).toList())
+                .stream()
+                .collect(Collectors.toMap(Team::getId, Function.identity()));
+        for (int i = 0; i < update.size(); i++) {
+            TeamDTO teamDTO = update.get(i);
+            Team team = teamDTO.id() == null ? null : existing.get(teamDTO.id());
+            if (teamDTO.id() == null) {
+                results.add(new BatchItemResult(UPDATE, i, null, HttpStatus.BAD_REQUEST.value(), "Team ID must not be null"));
+            } else if (team == null) {
+                results.add(new BatchItemResult(UPDATE, i, teamDTO.id(), HttpStatus.NOT_FOUND.value(), "Team of ID " + teamDTO.id() + " not found"));
+            } else {
+                TeamDTO before = TeamDTO.fromDomain(team);
+                team.setName(teamDTO.name());
+                team.setCountry(teamDTO.country());
+                changes.add(new TeamChange(ChangeKind.UPDATE, team.getId(), before, TeamDTO.fromDomain(team)));
+                results.add(new BatchItemResult(UPDATE, i, team.getId(), HttpStatus.OK.value(), null));
+            }
+        }
+
+        List<Long> delete = orEmpty(batch.delete());
+        Map<Long, TeamDTO> deletable = delete.isEmpty() ? Map.of() : teams.findDTOsByIdIn(delete)
+                .stream()
+                .collect(Collectors.toMap(TeamDTO::id, Function.identity()));
+        for (int i = 0; i < delete.size(); i++) {
+            Long id = delete.get(i);
+            if (id == null) {
+                results.add(new BatchItemResult(DELETE, i, null, HttpStatus.BAD_REQUEST.value(), "Team ID must not be null"));
+            } else if (deletable.containsKey(id)) {
+                results.add(new BatchItemResult(DELETE, i, id, HttpStatus.OK.value(), null));
+            } else {
+                results.add(new BatchItemResult(DELETE, i, id, HttpStatus.NOT_FOUND.value(), "Team of ID " + id + " not found"));
+            }
+        }
+
+        teams.flush();
+        if (!deletable.isEmpty()) {
+            teams.deleteAllByIdInBatch(deletable.keySet());
+        }
+
+        Cache cache = cacheManager.getCache(TEAMS);
+        for (TeamDTO teamDTO : deletable.values()) {
+            changes.add(new TeamChange(ChangeKind.DELETE, teamDTO.id(), teamDTO, null));
+        }
+        for (TeamChange change : changes) {
+            cache.evict(change.id());
+            events.publishEvent(change);
+        }
+        return results;
+    }
+
+    private static void checkVersion(Team team, Long expectedVersion) {
+        if (expectedVersion != null && team.getVersion() != expectedVersion) {
+            throw new OptimisticLockingFailureException("Team of ID " + team.getId() + " has version " + team.getVersion());
+        }
+    }
+
+    private static <T> List<T> orEmpty(List<T> operations) {
+        return operations == null ? List.of() : operations;
+    }
+}
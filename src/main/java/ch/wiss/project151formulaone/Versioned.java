@@ -0,0 +1,12 @@
+package ch.wiss.project151formulaone;
+
+/**
+ * The Versioned class pairs a DriverDTO or TeamDTO with the version of the row it was read from, so a cached copy
+ * can be checked against the version in the database.
+ *
+ * @param value   the DTO
+ * @param version the version of the driver or team when the DTO was read
+ * @param <T>     the type of the DTO
+ */
+public record Versioned<T>(T value, long version) {
+}
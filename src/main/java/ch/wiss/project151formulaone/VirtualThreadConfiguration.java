@@ -0,0 +1,57 @@
+package ch.wiss.project151formulaone;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * Configuration active when the application runs on virtual threads ({@code spring.threads.virtual.enabled=true},
+ * see the {@code virtual-threads} profile).
+ *
+ * Tomcat and the executor behind {@code @EnableAsync} then run every task on its own virtual thread, so blocking
+ * JDBC calls no longer hold on to a platform thread. To keep an unbounded number of virtual threads from piling up
+ * on the database, the DataSource is wrapped in a {@link ConcurrencyLimitingDataSource} with as many permits as the
+ * connection pool has connections, unless {@code formulaone.db.max-concurrency} says otherwise.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfiguration {
+
+    @Bean
+    static BeanPostProcessor concurrencyLimitingDataSourcePostProcessor(Environment environment) {
+        int poolSize = environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+        int maxConcurrency = environment.getProperty("formulaone.db.max-concurrency", Integer.class, poolSize);
+        long acquireTimeoutMillis = environment.getProperty("formulaone.db.acquire-timeout-ms", Long.class, 5000L);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConcurrencyLimitingDataSource)) {
+                    return new ConcurrencyLimitingDataSource(dataSource, maxConcurrency, acquireTimeoutMillis);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    MeterBinder databasePermitMetrics(ObjectProvider<DataSource> dataSource) {
+        return registry -> {
+            if (dataSource.getIfAvailable() instanceof ConcurrencyLimitingDataSource limiter) {
+                Gauge.builder("formulaone.db.permits.available", limiter, ConcurrencyLimitingDataSource::getAvailablePermits)
+                        .description("Database permits currently available")
+                        .register(registry);
+                Gauge.builder("formulaone.db.permits.waiting", limiter, ConcurrencyLimitingDataSource::getWaitingThreads)
+                        .description("Threads waiting for a database permit")
+                        .register(registry);
+            }
+        };
+    }
+}
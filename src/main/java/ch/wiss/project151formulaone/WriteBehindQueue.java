@@ -0,0 +1,324 @@
+package ch.wiss.project151formulaone;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * The WriteBehindQueue accepts driver and team updates without waiting for the database and writes them in batches.
+ *
+ * Every accepted update receives a ticket and is kept in memory until the next flush. Updates of an entity that is
+ * already queued replace the queued state, so a burst of updates to the same entity results in a single write; the
+ * tickets of all of them complete together. The queue is bounded by the number of distinct entities it holds, and
+ * rejects updates of further entities while it is full. A scheduled flush writes the queued updates through the batch
+ * operations of the services, in one transaction per batch, so caches and change events are handled as for any other
+ * write. If the database rejects a batch, its updates are retried one by one, so a single invalid update only fails
+ * its own tickets.
+ *
+ * A synchronous write of an entity with a queued update first writes the queued update, see writeQueuedDriver, so the
+ * later flush does not overwrite the synchronous write with the older queued state.
+ *
+ * The queue is stopped after the web server has finished the requests in flight during a graceful shutdown, and
+ * flushes everything it still holds before the application context closes. It is created eagerly even with lazy
+ * initialization, so the scheduled flush runs.
+ */
+@Component
+@Lazy(false)
+public class WriteBehindQueue implements SmartLifecycle {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong sequence = new AtomicLong();
+    private final Cache<String, WriteTicket> tickets;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final Lane<DriverDTO> drivers;
+    private final Lane<TeamDTO> teams;
+    private final Object flushLock = new Object();
+
+    /**
+     * Whether updates are accepted, guarded by the queue.
+     */
+    private boolean running;
+
+    public WriteBehindQueue(DriverService driverService, TeamService teamService,
+                            @Value("${formulaone.write-behind.capacity}") int capacity,
+                            @Value("${formulaone.write-behind.batch-size}") int batchSize,
+                            @Value("${formulaone.write-behind.flush-interval-ms}") long flushIntervalMillis,
+                            @Value("${formulaone.write-behind.ticket-spec}") String ticketSpec,
+                            MeterRegistry registry) {
+        this.tickets = Caffeine.from(ticketSpec).build();
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.drivers = new Lane<>("driver",
+                updates -> driverService.batch(new BatchRequest<>(null, updates, null)),
+                (id, driverDTO) -> driverService.update(id, driverDTO, null));
+        this.teams = new Lane<>("team",
+                updates -> teamService.batch(new BatchRequest<>(null, updates, null)),
+                (id, teamDTO) -> teamService.update(id, teamDTO, null));
+        Gauge.builder("formulaone.write-behind.pending", this, WriteBehindQueue::pending)
+                .description("Distinct drivers and teams with queued updates")
+                .register(registry);
+    }
+
+    /**
+     * Returns whether the client asked for asynchronous processing with {@code Prefer: respond-async}.
+     *
+     * @param prefer the Prefer header of the request, or null
+     * @return true if the respond-async preference is present
+     */
+    public static boolean respondAsync(String prefer) {
+        if (prefer == null) {
+            return false;
+        }
+        for (String preference : prefer.split(",")) {
+            if (preference.trim().toLowerCase().startsWith("respond-async")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Queues an update of the name, country and team ID of a driver.
+     *
+     * @param id        the ID of the driver to update
+     * @param driverDTO the updated driver details
+     * @return the ticket of the update, or empty if the queue is full
+     */
+    public Optional<WriteTicket> updateDriver(long id, DriverDTO driverDTO) {
+        return enqueue(drivers, id, new DriverDTO(id, driverDTO.name(), driverDTO.country(), driverDTO.teamId()));
+    }
+
+    /**
+     * Queues an update of the name and country of a team.
+     *
+     * @param id      the ID of the team to update
+     * @param teamDTO the updated team details
+     * @return the ticket of the update, or empty if the queue is full
+     */
+    public Optional<WriteTicket> updateTeam(long id, TeamDTO teamDTO) {
+        return enqueue(teams, id, new TeamDTO(id, teamDTO.name(), teamDTO.country()));
+    }
+
+    /**
+     * Writes the queued update of a driver right away, waiting for a flush that is writing it already. Called before a
+     * synchronous write of the driver, which would otherwise be overwritten once the queued update is flushed.
+     *
+     * @param id the ID of the driver about to be written
+     */
+    public void writeQueuedDriver(long id) {
+        writeQueued(drivers, id);
+    }
+
+    /**
+     * Writes the queued update of a team right away, waiting for a flush that is writing it already. Called before a
+     * synchronous write of the team, which would otherwise be overwritten once the queued update is flushed.
+     *
+     * @param id the ID of the team about to be written
+     */
+    public void writeQueuedTeam(long id) {
+        writeQueued(teams, id);
+    }
+
+    /**
+     * Retrieves the state of a ticket. Completed tickets are kept for a limited time only.
+     *
+     * @param ticket the ID of the ticket
+     * @return the ticket, or empty if it is unknown or has expired
+     */
+    public Optional<WriteTicket> findTicket(String ticket) {
+        return Optional.ofNullable(tickets.getIfPresent(ticket));
+    }
+
+    /**
+     * Returns the number of seconds a client should wait before retrying a rejected update.
+     *
+     * @return the flush interval in seconds, at least one
+     */
+    public long retryAfterSeconds() {
+        return Math.max(1, (flushIntervalMillis + 999) / 1000);
+    }
+
+    /**
+     * Writes everything queued at the time of the call.
+     */
+    @Scheduled(fixedDelayString = "${formulaone.write-behind.flush-interval-ms}")
+    public void flush() {
+        synchronized (flushLock) {
+            boolean more;
+            do {
+                more = drivers.flush() | teams.flush();
+            } while (more);
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        synchronized (this) {
+            running = false;
+        }
+        int pending = pending();
+        flush();
+        log.info("Flushed {} queued writes on shutdown", pending);
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 1;
+    }
+
+    private synchronized int pending() {
+        return drivers.pending.size() + teams.pending.size();
+    }
+
+    private synchronized <T> Optional<WriteTicket> enqueue(Lane<T> lane, long id, T dto) {
+        Pending<T> queued = lane.pending.get(id);
+        if (!running || queued == null && pending() >= capacity) {
+            return Optional.empty();
+        }
+        WriteTicket ticket = new WriteTicket(epoch + "-" + sequence.incrementAndGet(), lane.entity, id, WriteTicket.Status.QUEUED, null);
+        tickets.put(ticket.ticket(), ticket);
+        List<String> queuedTickets = queued == null ? new ArrayList<>() : queued.tickets();
+        queuedTickets.add(ticket.ticket());
+        lane.pending.put(id, new Pending<>(dto, queuedTickets));
+        return Optional.of(ticket);
+    }
+
+    private <T> void writeQueued(Lane<T> lane, long id) {
+        if (!isQueued(lane, id)) {
+            return;
+        }
+        // A flush holds the lock until its batch is written, so a batch already holding the update is complete here
+        synchronized (flushLock) {
+            Pending<T> write = take(lane, id);
+            if (write != null) {
+                lane.writeSingle(id, write);
+            }
+        }
+    }
+
+    private synchronized boolean isQueued(Lane<?> lane, long id) {
+        return lane.pending.containsKey(id) || lane.writing.contains(id);
+    }
+
+    private synchronized <T> Pending<T> take(Lane<T> lane, long id) {
+        return lane.pending.remove(id);
+    }
+
+    private synchronized <T> Map<Long, Pending<T>> take(Lane<T> lane) {
+        Map<Long, Pending<T>> batch = new LinkedHashMap<>();
+        for (Iterator<Map.Entry<Long, Pending<T>>> iterator = lane.pending.entrySet().iterator(); iterator.hasNext() && batch.size() < batchSize; ) {
+            Map.Entry<Long, Pending<T>> entry = iterator.next();
+            batch.put(entry.getKey(), entry.getValue());
+            iterator.remove();
+        }
+        lane.writing.addAll(batch.keySet());
+        return batch;
+    }
+
+    private synchronized void written(Lane<?> lane, Set<Long> ids) {
+        lane.writing.removeAll(ids);
+    }
+
+    private void complete(List<String> ticketIds, WriteTicket.Status status, String message) {
+        for (String ticketId : ticketIds) {
+            tickets.asMap().computeIfPresent(ticketId, (key, ticket) -> ticket.complete(status, message));
+        }
+    }
+
+    private record Pending<T>(T dto, List<String> tickets) {
+    }
+
+    /**
+     * The queued updates of one kind of entity, in the order the entities were first queued.
+     */
+    private final class Lane<T> {
+        final String entity;
+        final Function<List<T>, List<BatchItemResult>> batchWriter;
+        final BiFunction<Long, T, Optional<T>> singleWriter;
+        final LinkedHashMap<Long, Pending<T>> pending = new LinkedHashMap<>();
+        /**
+         * The IDs of the batch being written, guarded by the queue.
+         */
+        final Set<Long> writing = new HashSet<>();
+
+        Lane(String entity, Function<List<T>, List<BatchItemResult>> batchWriter, BiFunction<Long, T, Optional<T>> singleWriter) {
+            this.entity = entity;
+            this.batchWriter = batchWriter;
+            this.singleWriter = singleWriter;
+        }
+
+        /**
+         * Writes the next batch of queued updates.
+         *
+         * @return true if there may be more updates to write
+         */
+        boolean flush() {
+            Map<Long, Pending<T>> batch = take(this);
+            if (batch.isEmpty()) {
+                return false;
+            }
+            List<Pending<T>> writes = new ArrayList<>(batch.values());
+            try {
+                List<BatchItemResult> results = batchWriter.apply(writes.stream().map(Pending::dto).toList());
+                for (BatchItemResult result : results) {
+                    complete(writes.get(result.index()).tickets(), switch (result.status()) {
+                        case 200 -> WriteTicket.Status.WRITTEN;
+                        case 404 -> WriteTicket.Status.NOT_FOUND;
+                        default -> WriteTicket.Status.FAILED;
+                    }, result.message());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Batch of {} queued {} writes rejected, writing them one by one: {}", writes.size(), entity, e.getMessage());
+                batch.forEach(this::writeSingle);
+            } finally {
+                written(this, batch.keySet());
+            }
+            return batch.size() == batchSize;
+        }
+
+        private void writeSingle(long id, Pending<T> write) {
+            try {
+                boolean found = singleWriter.apply(id, write.dto()).isPresent();
+                complete(write.tickets(), found ? WriteTicket.Status.WRITTEN : WriteTicket.Status.NOT_FOUND, null);
+            } catch (RuntimeException e) {
+                complete(write.tickets(), WriteTicket.Status.FAILED, NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+            }
+        }
+    }
+}
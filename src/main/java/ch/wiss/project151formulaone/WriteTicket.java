@@ -0,0 +1,41 @@
+package ch.wiss.project151formulaone;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * The WriteTicket class represents the state of a write accepted by the WriteBehindQueue.
+ *
+ * @param ticket  the ID of the ticket
+ * @param entity  the kind of entity written, "driver" or "team"
+ * @param id      the ID of the entity written
+ * @param status  the state of the write
+ * @param message the reason a write failed, or null
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record WriteTicket(String ticket, String entity, long id, Status status, String message) {
+    /**
+     * The states of a queued write.
+     */
+    public enum Status {
+        /**
+         * The write is waiting to be flushed.
+         */
+        QUEUED,
+        /**
+         * The write has been committed, possibly together with later writes to the same entity.
+         */
+        WRITTEN,
+        /**
+         * The entity no longer existed when the write was flushed.
+         */
+        NOT_FOUND,
+        /**
+         * The database rejected the write.
+         */
+        FAILED
+    }
+
+    WriteTicket complete(Status status, String message) {
+        return new WriteTicket(ticket, entity, id, status, message);
+    }
+}
@@ -0,0 +1,32 @@
+package ch.wiss.project151formulaone;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Rest controller for the tickets of updates accepted by the WriteBehindQueue.
+ */
+@RestController
+@RequestMapping("api/tickets")
+public class WriteTicketRestController {
+    final WriteBehindQueue writes;
+
+    public WriteTicketRestController(WriteBehindQueue writes) {
+        this.writes = writes;
+    }
+
+    /**
+     * Retrieves the state of a queued update.
+     * Returns NOT_FOUND if the ticket is unknown, or completed so long ago that it has expired.
+     *
+     * @param ticket the ID of the ticket, as returned by an update with {@code Prefer: respond-async}
+     * @return the ResponseEntity containing the WriteTicket
+     */
+    @GetMapping("/{ticket}")
+    public ResponseEntity<WriteTicket> get(@PathVariable String ticket) {
+        return ResponseEntity.of(writes.findTicket(ticket));
+    }
+}
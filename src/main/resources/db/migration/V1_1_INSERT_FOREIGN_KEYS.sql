@@ -1,2 +0,0 @@
-ALTER TABLE DRIVER
-    ADD FOREIGN KEY (TEAM_ID) REFERENCES TEAM(ID)
\ No newline at end of file
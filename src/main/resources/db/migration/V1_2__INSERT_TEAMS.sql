@@ -1,5 +1,8 @@
+-- Databases set up before Flyway picked up the scripts were baselined at version 1 and already hold their teams, so
+-- the seed only fills an empty table
 INSERT INTO TEAM
-(NAME, COUNTRY) VALUES
+(NAME, COUNTRY)
+SELECT SEED.NAME, SEED.COUNTRY FROM (VALUES
                     ('Red Bull Racing', 'Austria'),
                     ('Mercedes', 'Germany'),
                     ('Ferrari', 'Italy'),
@@ -10,4 +13,5 @@ INSERT INTO TEAM
                     ('Alpha Tauri', 'Italy'),
                     ('Alfa Romeo', 'Switzerland'),
                     ('Haas F1', 'United States'),
-                    ('Independent', 'N/A');
\ No newline at end of file
+                    ('Independent', 'N/A')) AS SEED(NAME, COUNTRY)
+WHERE NOT EXISTS (SELECT 1 FROM TEAM);
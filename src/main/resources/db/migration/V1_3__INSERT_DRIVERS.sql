@@ -0,0 +1,28 @@
+-- Only fills an empty table, like the team seed. A team name may also have been taken by a team created later, so the
+-- first team of that name is used
+INSERT INTO DRIVER
+(NAME, COUNTRY, TEAM_ID)
+SELECT SEED.NAME, SEED.COUNTRY, (SELECT MIN(ID) FROM TEAM WHERE TEAM.NAME = SEED.TEAM) FROM (VALUES
+                             ('Max Verstappen', 'Netherlands', 'Red Bull Racing'),
+                             ('Sergio Perez', 'Mexico', 'Red Bull Racing'),
+                             ('George Russel', 'United Kingdom', 'Mercedes'),
+                             ('Lewis Hamilton', 'United Kingdom', 'Mercedes'),
+                             ('Charles Leclerc', 'Monaco', 'Ferrari'),
+                             ('Carlos Sainz', 'Spain', 'Ferrari'),
+                             ('Oscar Piastri', 'Australia', 'McLaren'),
+                             ('Lando Norris', 'United Kingdom', 'McLaren'),
+                             ('Fernando Alonso', 'Spain', 'Aston Martin'),
+                             ('Lance Stroll', 'Canada', 'Aston Martin'),
+                             ('Esteban Ocon', 'France', 'Alpine'),
+                             ('Pierre Gasly', 'France', 'Alpine'),
+                             ('Logan Sargeant', 'United States', 'Williams'),
+                             ('Alexander Albon', 'Thailand', 'Williams'),
+                             ('Daniel Ricciardo', 'Australia', 'Alpha Tauri'),
+                             ('Yuki Tsunoda', 'Japan', 'Alpha Tauri'),
+                             ('Zhou Guanyu', 'Peoples Republic of China', 'Alfa Romeo'),
+                             ('Valtteri Bottas', 'Finland', 'Alfa Romeo'),
+                             ('Kevin Magnussen', 'Denmark', 'Haas F1'),
+                             ('Nico Hulkenberg', 'Germany', 'Haas F1'),
+                             ('Liam Lawson', 'New Zealand', 'Independent'),
+                             ('Nyck De Vries', 'Netherlands', 'Independent')) AS SEED(NAME, COUNTRY, TEAM)
+WHERE NOT EXISTS (SELECT 1 FROM DRIVER);
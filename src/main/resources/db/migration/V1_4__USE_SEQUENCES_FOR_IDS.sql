@@ -0,0 +1,9 @@
+CREATE SEQUENCE team_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE team_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM team);
+ALTER TABLE team ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE team ALTER COLUMN id SET DEFAULT NEXT VALUE FOR team_seq;
+
+CREATE SEQUENCE driver_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE driver_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM driver);
+ALTER TABLE driver ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE driver ALTER COLUMN id SET DEFAULT NEXT VALUE FOR driver_seq;
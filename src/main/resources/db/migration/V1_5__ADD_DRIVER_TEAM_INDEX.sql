@@ -0,0 +1 @@
+CREATE INDEX IF NOT EXISTS driver_team_id_idx ON driver (team_id);
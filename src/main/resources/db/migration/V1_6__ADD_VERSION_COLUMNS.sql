@@ -0,0 +1,2 @@
+ALTER TABLE team ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE driver ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
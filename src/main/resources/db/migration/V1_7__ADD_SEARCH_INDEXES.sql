@@ -0,0 +1,3 @@
+CREATE INDEX IF NOT EXISTS driver_country_idx ON driver (country);
+CREATE INDEX IF NOT EXISTS driver_name_idx ON driver (name);
+CREATE INDEX IF NOT EXISTS team_country_idx ON team (country);
@@ -0,0 +1,4 @@
+CREATE TABLE schema_fingerprint (
+    id INT PRIMARY KEY,
+    fingerprint VARCHAR(64) NOT NULL
+);
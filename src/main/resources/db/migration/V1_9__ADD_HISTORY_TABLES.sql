@@ -0,0 +1,26 @@
+-- Every version of a driver or team with the period it was current in; valid_to is null for the current version,
+-- and a deleted row has no current version. The rows existing at migration time are valid from then on.
+CREATE TABLE driver_history (
+    driver_id BIGINT NOT NULL,
+    valid_from TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    valid_to TIMESTAMP(6) WITH TIME ZONE,
+    name VARCHAR(256) NOT NULL,
+    country VARCHAR(256) NOT NULL,
+    team_id BIGINT,
+    PRIMARY KEY (driver_id, valid_from)
+);
+CREATE INDEX IF NOT EXISTS driver_history_team_id_idx ON driver_history (team_id, valid_from);
+
+CREATE TABLE team_history (
+    team_id BIGINT NOT NULL,
+    valid_from TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    valid_to TIMESTAMP(6) WITH TIME ZONE,
+    name VARCHAR(256) NOT NULL,
+    country VARCHAR(256) NOT NULL,
+    PRIMARY KEY (team_id, valid_from)
+);
+
+INSERT INTO driver_history (driver_id, valid_from, name, country, team_id)
+SELECT id, CURRENT_TIMESTAMP, name, country, team_id FROM driver;
+INSERT INTO team_history (team_id, valid_from, name, country)
+SELECT id, CURRENT_TIMESTAMP, name, country FROM team;
@@ -0,0 +1,144 @@
+package ch.wiss.project151formulaone;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:formulaOne;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+class ConditionalRequestEndpointTests {
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Test
+    void matchingIfNoneMatchIsNotModified() throws Exception {
+        long id = createDriver();
+        String etag = etag(id);
+
+        mvc.perform(get("/api/driver/" + id)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+        mvc.perform(get("/api/driver/" + id)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"-1\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Conditional Driver"));
+    }
+
+    @Test
+    void ifMatchMismatchIsPreconditionFailed() throws Exception {
+        long id = createDriver();
+        String stale = ETags.forVersion(Long.parseLong(etag(id).replace("\"", "")) + 1);
+
+        mvc.perform(put("/api/driver/" + id)
+                        .header(HttpHeaders.IF_MATCH, stale)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(driver("Not Written")))
+                .andExpect(status().isPreconditionFailed());
+        mvc.perform(put("/api/driver/" + id)
+                        .header(HttpHeaders.IF_MATCH, "W/\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(driver("Not Written")))
+                .andExpect(status().isPreconditionFailed());
+        mvc.perform(delete("/api/driver/" + id)
+                        .header(HttpHeaders.IF_MATCH, stale))
+                .andExpect(status().isPreconditionFailed());
+        mvc.perform(get("/api/driver/" + id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Conditional Driver"));
+    }
+
+    @Test
+    void etagChangesAfterAWrite() throws Exception {
+        long id = createDriver();
+        String before = etag(id);
+
+        mvc.perform(put("/api/driver/" + id)
+                        .header(HttpHeaders.IF_MATCH, before)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(driver("Renamed")))
+                .andExpect(status().isOk());
+        String after = etag(id);
+        assertThat(after).isNotEqualTo(before);
+
+        mvc.perform(get("/api/driver/" + id)
+                        .header(HttpHeaders.IF_NONE_MATCH, before))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, after))
+                .andExpect(jsonPath("$.name").value("Renamed"));
+        mvc.perform(delete("/api/driver/" + id)
+                        .header(HttpHeaders.IF_MATCH, before))
+                .andExpect(status().isPreconditionFailed());
+        mvc.perform(delete("/api/driver/" + id)
+                        .header(HttpHeaders.IF_MATCH, after))
+                .andExpect(status().isOk());
+        mvc.perform(get("/api/driver/" + id)
+                        .header(HttpHeaders.IF_NONE_MATCH, after))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void cachedDriverOfAnOlderVersionIsNotServed() throws Exception {
+        long id = createDriver();
+        String before = etag(id);
+
+        // Written behind the services, so the cached driver is neither evicted nor replaced
+        jdbc.update("UPDATE driver SET name = 'Written Elsewhere', version = version + 1 WHERE id = ?", id);
+
+        String after = mvc.perform(get("/api/driver/" + id)
+                        .header(HttpHeaders.IF_NONE_MATCH, before))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Written Elsewhere"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(after).isNotEqualTo(before);
+        mvc.perform(get("/api/driver/" + id)
+                        .header(HttpHeaders.IF_NONE_MATCH, after))
+                .andExpect(status().isNotModified());
+    }
+
+    /**
+     * Reads the driver, which also caches it, and returns its ETag.
+     */
+    private String etag(long id) throws Exception {
+        return mvc.perform(get("/api/driver/" + id))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private static String driver(String name) {
+        return "{\"name\": \"" + name + "\", \"country\": \"Italy\"}";
+    }
+
+    private long createDriver() throws Exception {
+        String body = mvc.perform(post("/api/driver")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(driver("Conditional Driver")))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("id").asLong();
+    }
+}
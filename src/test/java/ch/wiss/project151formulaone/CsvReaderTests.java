@@ -0,0 +1,66 @@
+package ch.wiss.project151formulaone;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvReaderTests {
+    @Test
+    void plainFieldsAreSplitAtCommas() throws IOException {
+        CsvReader reader = reader("driver,1,Lewis Hamilton,United Kingdom,2\n");
+
+        assertThat(reader.read()).containsExactly("driver", "1", "Lewis Hamilton", "United Kingdom", "2");
+        assertThat(reader.line()).isEqualTo(1);
+        assertThat(reader.read()).isNull();
+    }
+
+    @Test
+    void quotedFieldsContainCommasAndQuotes() throws IOException {
+        CsvReader reader = reader("team,1,\"Red Bull, Racing\",\"The \"\"Bulls\"\"\",\n");
+
+        assertThat(reader.read()).containsExactly("team", "1", "Red Bull, Racing", "The \"Bulls\"", "");
+    }
+
+    @Test
+    void quotedFieldsContainLineBreaks() throws IOException {
+        CsvReader reader = reader("team,1,\"First\nSecond\",Italy,\ndriver,2,Name,Italy,1\n");
+
+        assertThat(reader.read()).containsExactly("team", "1", "First\nSecond", "Italy", "");
+        assertThat(reader.line()).isEqualTo(1);
+        assertThat(reader.read()).containsExactly("driver", "2", "Name", "Italy", "1");
+        assertThat(reader.line()).isEqualTo(3);
+    }
+
+    @Test
+    void emptyTrailingFieldIsKept() throws IOException {
+        assertThat(reader("driver,1,Name,Italy,\n").read()).containsExactly("driver", "1", "Name", "Italy", "");
+    }
+
+    @Test
+    void unterminatedQuoteIsRejected() throws IOException {
+        CsvReader reader = reader("team,1,Name,Italy,\nteam,2,\"Name,Italy,\n");
+        reader.read();
+
+        assertThatThrownBy(reader::read)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Line 2: quoted field is not terminated");
+    }
+
+    @Test
+    void quoteRoundTrips() throws IOException {
+        String name = "Alfa \"Romeo\", Sauber\nTeam";
+
+        assertThat(CsvReader.quote("Ferrari")).isEqualTo("Ferrari");
+        assertThat(CsvReader.quote(null)).isEmpty();
+        assertThat(reader(CsvReader.quote(name) + "\n").read()).containsExactly(name);
+    }
+
+    private static CsvReader reader(String text) {
+        return new CsvReader(new BufferedReader(new StringReader(text)));
+    }
+}
@@ -0,0 +1,169 @@
+package ch.wiss.project151formulaone;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DatabaseCircuitBreakerTests {
+    static final Supplier<ResponseEntity<?>> DATABASE = () -> ResponseEntity.ok("database");
+    static final Supplier<ResponseEntity<?>> SNAPSHOT = () -> ResponseEntity.ok("snapshot");
+    static final Supplier<ResponseEntity<?>> UNREACHABLE = () -> {
+        throw new CannotGetJdbcConnectionException("Connection is broken");
+    };
+
+    @Test
+    void opensAtTheFailureThreshold() {
+        DatabaseCircuitBreaker breaker = breaker(workingDatabase());
+
+        for (int i = 0; i < 4; i++) {
+            breaker.read(UNREACHABLE, SNAPSHOT);
+        }
+        assertThat(breaker.isOpen()).isFalse();
+
+        breaker.read(UNREACHABLE, SNAPSHOT);
+        assertThat(breaker.isOpen()).isTrue();
+        assertThat(breaker.read(DATABASE, SNAPSHOT).getBody()).isEqualTo("snapshot");
+    }
+
+    @Test
+    void successResetsTheFailures() {
+        DatabaseCircuitBreaker breaker = breaker(workingDatabase());
+
+        for (int i = 0; i < 4; i++) {
+            breaker.read(UNREACHABLE, SNAPSHOT);
+        }
+        breaker.read(DATABASE, SNAPSHOT);
+        for (int i = 0; i < 4; i++) {
+            breaker.read(UNREACHABLE, SNAPSHOT);
+        }
+
+        assertThat(breaker.isOpen()).isFalse();
+    }
+
+    @Test
+    void rejectedCallsAreNotFailures() {
+        DatabaseCircuitBreaker breaker = breaker(workingDatabase());
+
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> breaker.read(() -> {
+                throw new DataIntegrityViolationException("Unique index violated");
+            }, SNAPSHOT)).isInstanceOf(DataIntegrityViolationException.class);
+        }
+
+        assertThat(breaker.isOpen()).isFalse();
+    }
+
+    @Test
+    void callsBegunBeforeTheOpeningAreIgnored() {
+        DatabaseCircuitBreaker breaker = breaker(workingDatabase());
+        long before = breaker.startCall();
+
+        open(breaker);
+        breaker.probe();
+        assertThat(breaker.isOpen()).isFalse();
+        for (int i = 0; i < 5; i++) {
+            breaker.recordFailure(before);
+        }
+
+        assertThat(breaker.isOpen()).isFalse();
+    }
+
+    @Test
+    void lateSuccessDoesNotCloseTheBreaker() {
+        DatabaseCircuitBreaker breaker = breaker(unreachableDatabase());
+        Supplier<ResponseEntity<?>> slow = () -> {
+            open(breaker);
+            return ResponseEntity.ok("database");
+        };
+
+        breaker.read(slow, SNAPSHOT);
+
+        assertThat(breaker.isOpen()).isTrue();
+    }
+
+    @Test
+    void failuresRestartAtZeroAfterTheOpening() {
+        DatabaseCircuitBreaker breaker = breaker(workingDatabase());
+
+        open(breaker);
+        breaker.probe();
+        for (int i = 0; i < 4; i++) {
+            breaker.read(UNREACHABLE, SNAPSHOT);
+        }
+
+        assertThat(breaker.isOpen()).isFalse();
+    }
+
+    @Test
+    void probeClosesTheBreakerOnceTheDatabaseAnswers() {
+        DatabaseCircuitBreaker unreachable = breaker(unreachableDatabase());
+        open(unreachable);
+        unreachable.probe();
+        assertThat(unreachable.isOpen()).isTrue();
+
+        DatabaseCircuitBreaker working = breaker(workingDatabase());
+        open(working);
+        working.probe();
+        assertThat(working.isOpen()).isFalse();
+        assertThat(working.read(DATABASE, SNAPSHOT).getBody()).isEqualTo("database");
+    }
+
+    @Test
+    void snapshotResponsesAreMarkedAsStale() {
+        DatabaseCircuitBreaker breaker = breaker(workingDatabase());
+
+        ResponseEntity<?> failed = breaker.read(UNREACHABLE, SNAPSHOT);
+        assertThat(failed.getBody()).isEqualTo("snapshot");
+        assertThat(failed.getHeaders().getFirst(HttpHeaders.WARNING)).isEqualTo("110 - \"Response is Stale\"");
+        assertThat(failed.getHeaders().getFirst(HttpHeaders.AGE)).isEqualTo("0");
+
+        ResponseEntity<?> fresh = breaker.read(DATABASE, SNAPSHOT);
+        assertThat(fresh.getHeaders().containsKey(HttpHeaders.WARNING)).isFalse();
+        assertThat(fresh.getHeaders().containsKey(HttpHeaders.AGE)).isFalse();
+
+        open(breaker);
+        ResponseEntity<?> unavailable = breaker.read(DATABASE, breaker::unavailable);
+        assertThat(unavailable.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(unavailable.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(unavailable.getHeaders().containsKey(HttpHeaders.WARNING)).isFalse();
+    }
+
+    private static void open(DatabaseCircuitBreaker breaker) {
+        for (int i = 0; i < 5; i++) {
+            breaker.recordFailure(breaker.startCall());
+        }
+        assertThat(breaker.isOpen()).isTrue();
+    }
+
+    private static DatabaseCircuitBreaker breaker(DataSource dataSource) {
+        return new DatabaseCircuitBreaker(dataSource, 5, 1000, 1000, new SimpleMeterRegistry());
+    }
+
+    private static DataSource workingDatabase() {
+        return new DriverManagerDataSource("jdbc:h2:mem:breaker");
+    }
+
+    private static DataSource unreachableDatabase() {
+        DataSource dataSource = mock(DataSource.class);
+        try {
+            when(dataSource.getConnection()).thenThrow(new SQLException("Connection refused"));
+        } catch (SQLException e) {
+            throw new AssertionError(e);
+        }
+        return dataSource;
+    }
+}
@@ -0,0 +1,161 @@
+package ch.wiss.project151formulaone;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:formulaOne;DB_CLOSE_DELAY=-1", "formulaone.import.batch-size=2"})
+@AutoConfigureMockMvc
+class DatasetImportTests {
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Test
+    void importedIdAboveTheMaximumIsNotHandedOutAgain() throws Exception {
+        long created = createDriver("Before Import");
+        while (created + 1 == nextValue("DRIVER_SEQ")) {
+            // The driver took the last ID of its block, so the ID after it is not reserved yet
+            created = createDriver("Before Import");
+        }
+        long max = jdbc.queryForObject("SELECT MAX(id) FROM driver", Long.class);
+        assertThat(max).isEqualTo(created);
+
+        mvc.perform(post("/api/import")
+                        .contentType(DatasetTransfer.TEXT_CSV)
+                        .content(csv("driver," + (max + 1) + ",Reserved,Italy,")))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString("Line 2: ID " + (max + 1) + " of the new driver may already be taken")));
+        assertThat(createDriver("After Rejected Import")).isEqualTo(created + 1);
+
+        long next = nextValue("DRIVER_SEQ");
+        mvc.perform(post("/api/import")
+                        .contentType(DatasetTransfer.TEXT_CSV)
+                        .content(csv("driver," + next + ",Imported,Italy,")))
+                .andExpect(status().isOk());
+        assertThat(nextValue("DRIVER_SEQ")).isGreaterThan(next);
+
+        long afterImport = createDriver("After Import");
+        assertThat(afterImport).isNotEqualTo(next);
+        mvc.perform(get("/api/driver/" + next))
+                .andExpect(jsonPath("$.name").value("Imported"));
+    }
+
+    @Test
+    void existingRowInTheReservedBlockIsMerged() throws Exception {
+        long created = createDriver("Before Import");
+
+        mvc.perform(post("/api/import")
+                        .contentType(DatasetTransfer.TEXT_CSV)
+                        .content(csv("driver," + created + ",Merged,Italy,")))
+                .andExpect(status().isOk());
+        mvc.perform(get("/api/driver/" + created))
+                .andExpect(jsonPath("$.name").value("Merged"));
+    }
+
+    @Test
+    void quotedFieldsAndEmptyTeamIdAreImported() throws Exception {
+        long id = freeId("DRIVER_SEQ");
+
+        mvc.perform(post("/api/import")
+                        .contentType(DatasetTransfer.TEXT_CSV)
+                        .content(csv("driver," + id + ",\"Verstappen, \"\"Max\"\"\",\"The\nNetherlands\",")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.drivers").value(1));
+        mvc.perform(get("/api/driver/" + id))
+                .andExpect(jsonPath("$.name").value("Verstappen, \"Max\""))
+                .andExpect(jsonPath("$.country").value("The\nNetherlands"))
+                .andExpect(jsonPath("$.teamId").isEmpty());
+    }
+
+    @Test
+    void malformedRowIsBadRequest() throws Exception {
+        long id = freeId("TEAM_SEQ");
+
+        mvc.perform(post("/api/import")
+                        .contentType(DatasetTransfer.TEXT_CSV)
+                        .content(csv("team," + id + ",Malformed,Italy,", "team," + (id + 1) + ",Malformed,Italy")))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Line 3: expected 5 fields, found 4"));
+        mvc.perform(post("/api/import")
+                        .contentType(DatasetTransfer.TEXT_CSV)
+                        .content(csv("team,x" + id + ",Malformed,Italy,")))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString("Line 2: invalid ID")));
+        assertThat(count("team", id)).isZero();
+    }
+
+    @Test
+    void failedImportKeepsEarlierBatchesAndCompletesWhenRepeated() throws Exception {
+        long teamId = freeId("TEAM_SEQ");
+        long driverId = freeId("DRIVER_SEQ");
+        String teams = "team," + teamId + ",Imported Team,Italy,";
+        // The driver refers to a team of its own batch, which is not written yet
+        String first = "driver," + driverId + ",First,Italy," + teamId;
+        String second = "driver," + (driverId + 1) + ",Second,Italy," + teamId;
+
+        mvc.perform(post("/api/import")
+                        .contentType(DatasetTransfer.TEXT_CSV)
+                        .content(csv(teams, first, "driver," + (driverId + 1) + ",Second,Italy," + (teamId + 1))))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Line 4: Team of ID " + (teamId + 1) + " not found"));
+        assertThat(count("team", teamId)).isOne();
+        assertThat(count("driver", driverId)).isOne();
+        assertThat(count("driver", driverId + 1)).isZero();
+
+        mvc.perform(post("/api/import")
+                        .contentType(DatasetTransfer.TEXT_CSV)
+                        .content(csv(teams, first, second)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.teams").value(1))
+                .andExpect(jsonPath("$.drivers").value(2));
+        mvc.perform(get("/api/driver/" + (driverId + 1)))
+                .andExpect(jsonPath("$.teamId").value(teamId));
+    }
+
+    private int count(String table, long id) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE id = ?", Integer.class, id);
+    }
+
+    /**
+     * Returns an ID well past the block the application may have reserved.
+     */
+    private long freeId(String sequence) {
+        return nextValue(sequence) + 1000;
+    }
+
+    private long nextValue(String sequence) {
+        return jdbc.queryForObject("SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = ?", Long.class, sequence);
+    }
+
+    private static String csv(String... rows) {
+        return "type,id,name,country,teamId\n" + String.join("\n", rows) + "\n";
+    }
+
+    private long createDriver(String name) throws Exception {
+        String body = mvc.perform(post("/api/driver")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"" + name + "\", \"country\": \"Italy\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("id").asLong();
+    }
+}
@@ -0,0 +1,95 @@
+package ch.wiss.project151formulaone;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DriverServiceTests {
+    private static final int READERS = 8;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final DriverRepository repository = mock(DriverRepository.class);
+    private final DriverService service = new DriverService(repository,
+            new ConcurrentMapCacheManager(CacheConfiguration.DRIVERS, CacheConfiguration.DRIVER_PAGES),
+            mock(ApplicationEventPublisher.class), mock(TeamIds.class), registry);
+
+    @Test
+    void burstOfReadsOfOneDriverQueriesOnce() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(repository.findVersionById(1L)).thenAnswer(invocation -> {
+            await(release);
+            return Optional.of(0L);
+        });
+        when(repository.findById(1L)).thenReturn(Optional.of(new Driver("Charles Leclerc", "Monaco", null)));
+        List<Future<Optional<DriverDTO>>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(READERS)) {
+            for (int i = 0; i < READERS; i++) {
+                results.add(executor.submit(() -> service.findVersion(1L).flatMap(version -> service.findById(1L, version))));
+            }
+            awaitCoalesced(READERS - 1);
+            release.countDown();
+            for (Future<Optional<DriverDTO>> result : results) {
+                assertThat(result.get()).get().extracting(DriverDTO::name).isEqualTo("Charles Leclerc");
+            }
+        }
+        verify(repository, times(1)).findVersionById(1L);
+        verify(repository, times(1)).findById(1L);
+    }
+
+    @Test
+    void lookupAfterAWriteDoesNotWaitForAnOlderLookup() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(repository.findVersionById(1L)).thenAnswer(invocation -> {
+            await(release);
+            return Optional.of(0L);
+        }).thenReturn(Optional.of(1L));
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            Future<Optional<Long>> before = executor.submit(() -> service.findVersion(1L));
+            while (!mockingStarted()) {
+                Thread.sleep(1);
+            }
+
+            service.onDriverChange(new DriverChange(ChangeKind.UPDATE, 1, null, null));
+
+            assertThat(service.findVersion(1L)).contains(1L);
+            release.countDown();
+            assertThat(before.get()).contains(0L);
+        }
+        verify(repository, times(2)).findVersionById(1L);
+    }
+
+    private boolean mockingStarted() {
+        return !mockingDetails(repository).getInvocations().isEmpty();
+    }
+
+    private void awaitCoalesced(int waiting) throws InterruptedException {
+        while (registry.counter("formulaone.reads.coalesced", "entity", "driver").count() < waiting) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package ch.wiss.project151formulaone;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HistoryServiceTests {
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    final FailingRepository repository = new FailingRepository();
+
+    @Test
+    void failedBatchIsRetriedAfterTheBackoff() throws InterruptedException {
+        HistoryService service = service(10, 50);
+        repository.failures = 1;
+
+        service.onDriverChange(new DriverChange(ChangeKind.CREATE, 1, null, driver(1)));
+        service.onDriverChange(new DriverChange(ChangeKind.CREATE, 2, null, driver(2)));
+        service.flush();
+        assertThat(repository.appended).isEmpty();
+
+        service.flush();
+        assertThat(repository.appended).as("backing off").isEmpty();
+
+        Thread.sleep(60);
+        service.flush();
+        assertThat(repository.appended).extracting(HistoryChange::id).containsExactly(1L, 2L);
+        assertThat(registry.counter("formulaone.history.dropped").count()).isZero();
+    }
+
+    @Test
+    void changesAreDroppedOnlyBeyondTheCapacityWhileBackingOff() {
+        HistoryService service = service(2, 60_000);
+        repository.failures = Integer.MAX_VALUE;
+
+        service.onDriverChange(new DriverChange(ChangeKind.CREATE, 1, null, driver(1)));
+        service.flush();
+        service.onDriverChange(new DriverChange(ChangeKind.CREATE, 2, null, driver(2)));
+        service.onDriverChange(new DriverChange(ChangeKind.CREATE, 3, null, driver(3)));
+        service.onDriverChange(new DriverChange(ChangeKind.CREATE, 4, null, driver(4)));
+
+        assertThat(registry.counter("formulaone.history.dropped").count()).isEqualTo(2);
+
+        repository.failures = 0;
+        service.stop();
+        assertThat(repository.appended).extracting(HistoryChange::id).containsExactly(1L, 2L);
+    }
+
+    HistoryService service(int capacity, long flushIntervalMs) {
+        HistoryService service = new HistoryService(repository, new NoTransactionManager(), capacity, 100,
+                flushIntervalMs, 4 * flushIntervalMs, registry);
+        service.start();
+        return service;
+    }
+
+    static DriverDTO driver(long id) {
+        return new DriverDTO(id, "Driver " + id, "Finland", null);
+    }
+
+    static class FailingRepository extends HistoryRepository {
+        final List<HistoryChange<DriverDTO>> appended = new ArrayList<>();
+        int failures;
+
+        FailingRepository() {
+            super(null);
+        }
+
+        @Override
+        public void appendDrivers(List<HistoryChange<DriverDTO>> changes) {
+            if (failures > 0) {
+                failures--;
+                throw new IllegalStateException("Database unavailable");
+            }
+            appended.addAll(changes);
+        }
+
+        @Override
+        public void appendTeams(List<HistoryChange<TeamDTO>> changes) {
+        }
+    }
+}
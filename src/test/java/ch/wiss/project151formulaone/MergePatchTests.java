@@ -0,0 +1,85 @@
+package ch.wiss.project151formulaone;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MergePatchTests {
+    private static final MergePatch.Target DRIVER = new MergePatch.Target("driver",
+            List.of("id", "name", "country", "team_id"),
+            Map.of(
+                    "name", new MergePatch.Field("name", String.class, false),
+                    "country", new MergePatch.Field("country", String.class, false),
+                    "teamId", new MergePatch.Field("team_id", Long.class, true)));
+
+    @Test
+    void nullRemovesNullableField() {
+        Map<String, Object> document = new HashMap<>();
+        document.put("teamId", null);
+
+        MergePatch patch = DRIVER.parse(document);
+
+        assertThat(patch.values()).containsEntry("team_id", null);
+        assertThat(patch.<Long>valueOr("team_id", 7L)).isNull();
+    }
+
+    @Test
+    void absentFieldKeepsCurrentValue() {
+        MergePatch patch = DRIVER.parse(Map.of("name", "Lando Norris"));
+
+        assertThat(patch.values()).containsOnlyKeys("name");
+        assertThat(patch.valueOr("name", "Oscar Piastri")).isEqualTo("Lando Norris");
+        assertThat(patch.valueOr("country", "Great Britain")).isEqualTo("Great Britain");
+        assertThat(patch.valueOr("team_id", 3L)).isEqualTo(3L);
+    }
+
+    @Test
+    void integerIsWidenedToLong() {
+        MergePatch patch = DRIVER.parse(Map.of("teamId", 4));
+
+        assertThat(patch.values()).containsEntry("team_id", 4L);
+    }
+
+    @Test
+    void idIsSkipped() {
+        MergePatch patch = DRIVER.parse(Map.of("id", 1, "country", "Monaco"));
+
+        assertThat(patch.values()).containsOnlyKeys("country");
+    }
+
+    @Test
+    void emptyPatchSetsNothing() {
+        assertThat(DRIVER.parse(Map.of()).isEmpty()).isTrue();
+        assertThat(DRIVER.parse(Map.of("id", 1)).isEmpty()).isTrue();
+        assertThat(DRIVER.parse(Map.of("name", "Max")).isEmpty()).isFalse();
+    }
+
+    @Test
+    void unknownFieldIsRejected() {
+        assertThatThrownBy(() -> DRIVER.parse(Map.of("number", 1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Unknown field number");
+    }
+
+    @Test
+    void nullOfRequiredFieldIsRejected() {
+        Map<String, Object> document = new HashMap<>();
+        document.put("name", null);
+
+        assertThatThrownBy(() -> DRIVER.parse(document))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Field name must not be null");
+    }
+
+    @Test
+    void valueOfWrongTypeIsRejected() {
+        assertThatThrownBy(() -> DRIVER.parse(Map.of("teamId", "one")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Field teamId must be of type Long");
+    }
+}
@@ -0,0 +1,59 @@
+package ch.wiss.project151formulaone;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MigrationTests {
+    @Test
+    void emptyDatabaseIsSeeded() {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:fresh;DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+        migrate(dataSource);
+
+        assertThat(count(jdbc, "SELECT COUNT(*) FROM team")).isEqualTo(11);
+        assertThat(count(jdbc, "SELECT COUNT(*) FROM driver")).isEqualTo(22);
+        assertThat(count(jdbc, "SELECT COUNT(*) FROM driver WHERE team_id IS NULL")).isZero();
+        assertThat(foreignKeys(jdbc)).isOne();
+    }
+
+    @Test
+    void databaseBaselinedAtVersionOneKeepsItsKeyAndRows() {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:baselined;DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        // Set up by hand before Flyway picked up the scripts, then baselined by baseline-on-migrate at its default version
+        jdbc.execute("CREATE TABLE driver (id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY, name VARCHAR(256) NOT NULL, "
+                + "country VARCHAR(256) NOT NULL, team_id BIGINT)");
+        jdbc.execute("CREATE TABLE team (id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY, name VARCHAR(256) NOT NULL, "
+                + "country VARCHAR(256) NOT NULL)");
+        jdbc.execute("ALTER TABLE driver ADD FOREIGN KEY (team_id) REFERENCES team(id)");
+        jdbc.update("INSERT INTO team (name, country) VALUES ('Red Bull Racing', 'Austria'), ('Ferrari', 'Italy')");
+        jdbc.update("INSERT INTO driver (name, country, team_id) VALUES ('Max Verstappen', 'Netherlands', 1)");
+        Flyway.configure().dataSource(dataSource).baselineVersion("1").load().baseline();
+
+        migrate(dataSource);
+
+        assertThat(count(jdbc, "SELECT COUNT(*) FROM team")).isEqualTo(2);
+        assertThat(count(jdbc, "SELECT COUNT(*) FROM driver")).isOne();
+        assertThat(foreignKeys(jdbc)).isOne();
+    }
+
+    private static void migrate(DataSource dataSource) {
+        Flyway.configure().dataSource(dataSource).javaMigrations(new DriverTeamForeignKeyMigration()).load().migrate();
+    }
+
+    private static int foreignKeys(JdbcTemplate jdbc) {
+        return count(jdbc, "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS "
+                + "WHERE TABLE_NAME = 'DRIVER' AND CONSTRAINT_TYPE = 'FOREIGN KEY'");
+    }
+
+    private static int count(JdbcTemplate jdbc, String sql) {
+        return jdbc.queryForObject(sql, Integer.class);
+    }
+}
@@ -0,0 +1,137 @@
+package ch.wiss.project151formulaone;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:formulaOne;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+class PatchEndpointTests {
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Test
+    void patchChangesOnlyGivenFields() throws Exception {
+        long teamId = createTeam();
+        long driverId = createDriver(teamId);
+
+        mvc.perform(patch("/api/driver/" + driverId)
+                        .contentType(MergePatch.APPLICATION_MERGE_PATCH_JSON)
+                        .content("{\"country\": \"Monaco\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Patch Driver"))
+                .andExpect(jsonPath("$.country").value("Monaco"))
+                .andExpect(jsonPath("$.teamId").value(teamId));
+    }
+
+    @Test
+    void nullRemovesDriverFromTeam() throws Exception {
+        long driverId = createDriver(createTeam());
+
+        mvc.perform(patch("/api/driver/" + driverId)
+                        .contentType(MergePatch.APPLICATION_MERGE_PATCH_JSON)
+                        .content("{\"teamId\": null}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.teamId").isEmpty());
+        mvc.perform(get("/api/driver/" + driverId))
+                .andExpect(jsonPath("$.teamId").isEmpty());
+    }
+
+    @Test
+    void unknownFieldIsBadRequest() throws Exception {
+        long driverId = createDriver(createTeam());
+
+        mvc.perform(patch("/api/driver/" + driverId)
+                        .contentType(MergePatch.APPLICATION_MERGE_PATCH_JSON)
+                        .content("{\"number\": 44}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void emptyPatchWritesNothing() throws Exception {
+        long driverId = createDriver(createTeam());
+        String etag = mvc.perform(get("/api/driver/" + driverId)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(patch("/api/driver/" + driverId)
+                        .contentType(MergePatch.APPLICATION_MERGE_PATCH_JSON)
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .content("{}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Patch Driver"));
+        mvc.perform(get("/api/driver/" + driverId))
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+    }
+
+    @Test
+    void staleIfMatchIsPreconditionFailed() throws Exception {
+        long driverId = createDriver(createTeam());
+
+        mvc.perform(patch("/api/driver/" + driverId)
+                        .contentType(MergePatch.APPLICATION_MERGE_PATCH_JSON)
+                        .header(HttpHeaders.IF_MATCH, "\"99\"")
+                        .content("{\"name\": \"Stale\"}"))
+                .andExpect(status().isPreconditionFailed());
+        mvc.perform(patch("/api/driver/" + driverId)
+                        .contentType(MergePatch.APPLICATION_MERGE_PATCH_JSON)
+                        .header(HttpHeaders.IF_MATCH, "\"99\"")
+                        .content("{}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void teamDeletedBehindTheServicesIsConflict() throws Exception {
+        long driverId = createDriver(createTeam());
+        long deletedTeamId = createTeam();
+        jdbc.update("DELETE FROM team WHERE id = ?", deletedTeamId);
+
+        mvc.perform(patch("/api/driver/" + driverId)
+                        .contentType(MergePatch.APPLICATION_MERGE_PATCH_JSON)
+                        .content("{\"teamId\": " + deletedTeamId + "}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void unknownDriverIsNotFound() throws Exception {
+        mvc.perform(patch("/api/driver/" + Long.MAX_VALUE)
+                        .contentType(MergePatch.APPLICATION_MERGE_PATCH_JSON)
+                        .content("{\"name\": \"Nobody\"}"))
+                .andExpect(status().isNotFound());
+    }
+
+    private long createTeam() throws Exception {
+        String body = mvc.perform(post("/api/team")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Patch Team\", \"country\": \"Italy\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("id").asLong();
+    }
+
+    private long createDriver(long teamId) throws Exception {
+        String body = mvc.perform(post("/api/driver")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Patch Driver\", \"country\": \"Italy\", \"teamId\": " + teamId + "}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("id").asLong();
+    }
+}
@@ -3,7 +3,7 @@ package ch.wiss.project151formulaone;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:formulaOne;DB_CLOSE_DELAY=-1")
 class Project151FormulaOneApplicationTests {
 
     @Test
@@ -0,0 +1,86 @@
+package ch.wiss.project151formulaone;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitingFilterTests {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    /**
+     * One token every 100 seconds, so no token is refilled while a test runs.
+     */
+    private final RateLimitingFilter filter = new RateLimitingFilter(0.01, 3, "X-Forwarded-For",
+            "maximumSize=100", registry);
+
+    @Test
+    void burstIsServedThenRejectedWithRetryAfter() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertThat(send("10.0.0.1", "/api/driver/1").getStatus()).isEqualTo(HttpStatus.OK.value());
+        }
+
+        MockHttpServletResponse rejected = send("10.0.0.1", "/api/driver/1");
+
+        assertThat(rejected.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+        assertThat(Long.parseLong(rejected.getHeader(HttpHeaders.RETRY_AFTER))).isBetween(90L, 100L);
+        assertThat(registry.counter("formulaone.rate-limit.rejected").count()).isEqualTo(1);
+    }
+
+    @Test
+    void clientsHaveBucketsOfTheirOwn() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            send("10.0.0.1", "/api/team/all");
+        }
+
+        assertThat(send("10.0.0.2, 192.168.0.1", "/api/team/all").getStatus()).isEqualTo(HttpStatus.OK.value());
+    }
+
+    @Test
+    void otherEndpointsAreNotLimited() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertThat(send("10.0.0.1", "/actuator/health").getStatus()).isEqualTo(HttpStatus.OK.value());
+        }
+    }
+
+    @Test
+    void concurrentRequestsTakeEachTokenOnce() throws Exception {
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> statuses = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int i = 0; i < threads; i++) {
+                statuses.add(executor.submit(() -> {
+                    start.await();
+                    return send("10.0.0.3", "/api/driver/1").getStatus();
+                }));
+            }
+            start.countDown();
+            int served = 0;
+            for (Future<Integer> status : statuses) {
+                served += status.get() == HttpStatus.OK.value() ? 1 : 0;
+            }
+            assertThat(served).isEqualTo(3);
+        }
+    }
+
+    private MockHttpServletResponse send(String client, String uri) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.addHeader("X-Forwarded-For", client);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,113 @@
+package ch.wiss.project151formulaone;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReadReplicaTests {
+    final DriverRepository driverRepository = mock(DriverRepository.class);
+    final TeamRepository teamRepository = mock(TeamRepository.class);
+    final CollectionVersions versions = new CollectionVersions();
+    final ReadReplica replica = new ReadReplica(driverRepository, teamRepository, breaker(), versions, new NoTransactionManager());
+
+    @Test
+    void refreshMergesDeletionsGapsAndChanges() {
+        load(List.of(team(1)), List.of(driver(1), driver(2), driver(3), driver(4), driver(5), driver(6)));
+        String etag = versions.driversETag("json");
+
+        load(List.of(team(1)), List.of(driver(1), driver(3), new DriverDTO(6L, "Renamed", "Finland", 1L), driver(8)));
+
+        assertThat(replica.drivers()).extracting(DriverDTO::id).containsExactly(1L, 3L, 6L, 8L);
+        assertThat(replica.findDriver(6)).get().extracting(DriverDTO::name).isEqualTo("Renamed");
+        assertThat(versions.driversETag("json")).isNotEqualTo(etag);
+    }
+
+    @Test
+    void unchangedRefreshKeepsTheETags() {
+        load(List.of(team(1)), List.of(driver(1), driver(2)));
+        String etag = versions.driversETag("json");
+
+        load(List.of(team(1)), List.of(driver(1), driver(2)));
+
+        assertThat(versions.driversETag("json")).isEqualTo(etag);
+    }
+
+    @Test
+    void refreshRemovesEverythingMissingFromTheTables() {
+        load(List.of(team(1), team(2)), List.of(driver(1), driver(2)));
+
+        load(List.of(), List.of());
+
+        assertThat(replica.teams()).isEmpty();
+        assertThat(replica.drivers()).isEmpty();
+    }
+
+    @Test
+    void changeDuringRefreshIsAppliedAgain() {
+        load(List.of(team(1)), List.of(driver(1), driver(2)));
+        DriverDTO renamed = new DriverDTO(2L, "Renamed", "Finland", 1L);
+        when(teamRepository.streamAllDTOs()).thenReturn(Stream.of(team(1)));
+        when(driverRepository.streamAllDTOs()).thenAnswer(invocation -> {
+            // The change commits after the refresh has taken its snapshot, which still holds the old row
+            replica.onDriverChange(new DriverChange(ChangeKind.UPDATE, 2, driver(2), renamed));
+            return Stream.of(driver(1), driver(2));
+        });
+
+        replica.refresh();
+
+        assertThat(replica.findDriver(2)).contains(renamed);
+    }
+
+    @Test
+    void refreshRequestedDuringRefreshRunsAgain() {
+        when(teamRepository.streamAllDTOs()).thenAnswer(invocation -> {
+            replica.refresh();
+            return Stream.of(team(1));
+        }).thenReturn(Stream.of(team(1), team(2)));
+        when(driverRepository.streamAllDTOs()).thenReturn(Stream.of(), Stream.of());
+
+        replica.refresh();
+
+        verify(teamRepository, times(2)).streamAllDTOs();
+        assertThat(replica.teams()).extracting(TeamDTO::id).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void rostersGroupDriversByTeam() {
+        load(List.of(team(1), team(2), team(3)),
+                List.of(driver(1), new DriverDTO(2L, "Driver 2", "Finland", 2L), driver(3), new DriverDTO(4L, "Driver 4", "Finland", null)));
+
+        assertThat(replica.rosters()).containsExactly(
+                new TeamRosterDTO(1L, "Team 1", "Italy", List.of(driver(1), driver(3))),
+                new TeamRosterDTO(2L, "Team 2", "Italy", List.of(new DriverDTO(2L, "Driver 2", "Finland", 2L))),
+                new TeamRosterDTO(3L, "Team 3", "Italy", List.of()));
+    }
+
+    private void load(List<TeamDTO> teams, List<DriverDTO> drivers) {
+        when(teamRepository.streamAllDTOs()).thenReturn(teams.stream());
+        when(driverRepository.streamAllDTOs()).thenReturn(drivers.stream());
+        replica.refresh();
+        assertThat(replica.isLoaded()).isTrue();
+    }
+
+    private static DatabaseCircuitBreaker breaker() {
+        return new DatabaseCircuitBreaker(new DriverManagerDataSource("jdbc:h2:mem:replica"), 5, 1000, 1000, new SimpleMeterRegistry());
+    }
+
+    private static TeamDTO team(long id) {
+        return new TeamDTO(id, "Team " + id, "Italy");
+    }
+
+    private static DriverDTO driver(long id) {
+        return new DriverDTO(id, "Driver " + id, "Finland", 1L);
+    }
+}
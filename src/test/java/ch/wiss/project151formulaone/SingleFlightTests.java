@@ -0,0 +1,94 @@
+package ch.wiss.project151formulaone;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTests {
+    private static final int READERS = 8;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SingleFlight<Long, String> loads = new SingleFlight<>("driver", registry);
+
+    @Test
+    void concurrentLoadsOfTheSameKeyShareOneCall() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(READERS)) {
+            for (int i = 0; i < READERS; i++) {
+                results.add(executor.submit(() -> loads.load(1L, () -> {
+                    calls.incrementAndGet();
+                    await(release);
+                    return "driver 1";
+                })));
+            }
+            awaitCoalesced(READERS - 1);
+            release.countDown();
+            for (Future<String> result : results) {
+                assertThat(result.get()).isEqualTo("driver 1");
+            }
+        }
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void failureIsSharedAndNotRemembered() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(READERS)) {
+            for (int i = 0; i < READERS; i++) {
+                results.add(executor.submit(() -> loads.load(2L, () -> {
+                    await(release);
+                    throw new IllegalStateException("database down");
+                })));
+            }
+            awaitCoalesced(READERS - 1);
+            release.countDown();
+            for (Future<String> result : results) {
+                assertThatThrownBy(result::get)
+                        .isInstanceOf(ExecutionException.class)
+                        .hasCauseInstanceOf(IllegalStateException.class);
+            }
+        }
+        assertThat(loads.load(2L, () -> "driver 2")).isEqualTo("driver 2");
+    }
+
+    @Test
+    void differentKeysAreLoadedSeparately() {
+        AtomicInteger calls = new AtomicInteger();
+
+        loads.load(3L, () -> "driver " + calls.incrementAndGet());
+        loads.load(4L, () -> "driver " + calls.incrementAndGet());
+        loads.load(3L, () -> "driver " + calls.incrementAndGet());
+
+        assertThat(calls).hasValue(3);
+        assertThat(registry.counter("formulaone.reads.coalesced", "entity", "driver").count()).isZero();
+    }
+
+    private void awaitCoalesced(int waiting) throws InterruptedException {
+        while (registry.counter("formulaone.reads.coalesced", "entity", "driver").count() < waiting) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package ch.wiss.project151formulaone;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNoException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:formulaOne;DB_CLOSE_DELAY=-1")
+class TeamIdsTests {
+    @Autowired
+    TeamIds teamIds;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Test
+    void teamWrittenBehindTheServicesIsFound() {
+        long id = jdbc.queryForObject("SELECT NEXT VALUE FOR team_seq", Long.class) + 1_000_000;
+        jdbc.update("INSERT INTO team (id, name, country) VALUES (?, 'Other Instance', 'Japan')", id);
+
+        assertThatNoException().isThrownBy(() -> teamIds.check(id));
+        assertThat(teamIds.contains(id)).isTrue();
+    }
+
+    @Test
+    void unknownTeamIsRejected() {
+        assertThatThrownBy(() -> teamIds.check(Long.MAX_VALUE))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Team of ID " + Long.MAX_VALUE + " not found");
+    }
+}
@@ -0,0 +1,91 @@
+package ch.wiss.project151formulaone;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:formulaOne;DB_CLOSE_DELAY=-1",
+        "formulaone.write-behind.capacity=1", "formulaone.write-behind.flush-interval-ms=600000"})
+@AutoConfigureMockMvc
+class WriteBehindEndpointTests {
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    WriteBehindQueue writes;
+
+    @BeforeEach
+    void emptyQueue() {
+        writes.flush();
+    }
+
+    @Test
+    void fullQueueIsTooManyRequests() throws Exception {
+        long first = createDriver();
+        long second = createDriver();
+
+        mvc.perform(async(put("/api/driver/" + first), "Queued"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Preference-Applied", "respond-async"));
+        mvc.perform(async(put("/api/driver/" + second), "Rejected"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "600"));
+    }
+
+    @Test
+    void synchronousUpdateIsNotOverwrittenByAQueuedUpdate() throws Exception {
+        long id = createDriver();
+        String body = mvc.perform(async(put("/api/driver/" + id), "Queued"))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getContentAsString();
+        String ticket = objectMapper.readTree(body).get("ticket").asText();
+
+        mvc.perform(put("/api/driver/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(driver("Synchronous")))
+                .andExpect(status().isOk());
+        writes.flush();
+
+        mvc.perform(get("/api/tickets/" + ticket))
+                .andExpect(jsonPath("$.status").value("WRITTEN"));
+        mvc.perform(get("/api/driver/" + id))
+                .andExpect(jsonPath("$.name").value("Synchronous"));
+    }
+
+    private static MockHttpServletRequestBuilder async(MockHttpServletRequestBuilder request, String name) {
+        return request
+                .header("Prefer", "respond-async")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(driver(name));
+    }
+
+    private static String driver(String name) {
+        return "{\"name\": \"" + name + "\", \"country\": \"Italy\"}";
+    }
+
+    private long createDriver() throws Exception {
+        String body = mvc.perform(post("/api/driver")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(driver("Write Behind Driver")))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("id").asLong();
+    }
+}
@@ -0,0 +1,164 @@
+package ch.wiss.project151formulaone;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class WriteBehindQueueTests {
+    final DriverService driverService = mock(DriverService.class);
+    final TeamService teamService = mock(TeamService.class);
+
+    @Test
+    void repeatedUpdatesOfADriverAreWrittenOnce() {
+        WriteBehindQueue queue = queue(10, 10);
+        when(driverService.batch(any())).thenAnswer(invocation -> written(invocation.getArgument(0)));
+
+        WriteTicket first = queue.updateDriver(1, driver(1, "First")).orElseThrow();
+        WriteTicket second = queue.updateDriver(1, driver(1, "Second")).orElseThrow();
+        WriteTicket other = queue.updateDriver(2, driver(2, "Other")).orElseThrow();
+        queue.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<BatchRequest<DriverDTO>> batch = ArgumentCaptor.forClass(BatchRequest.class);
+        verify(driverService, times(1)).batch(batch.capture());
+        assertThat(batch.getValue().update()).containsExactly(driver(1, "Second"), driver(2, "Other"));
+        assertThat(List.of(first, second, other)).allSatisfy(ticket -> assertThat(status(queue, ticket)).isEqualTo(WriteTicket.Status.WRITTEN));
+    }
+
+    @Test
+    void fullQueueRejectsFurtherEntities() {
+        WriteBehindQueue queue = queue(2, 10);
+
+        assertThat(queue.updateDriver(1, driver(1, "First"))).isPresent();
+        assertThat(queue.updateDriver(2, driver(2, "Second"))).isPresent();
+
+        assertThat(queue.updateDriver(3, driver(3, "Third"))).isEmpty();
+        assertThat(queue.updateTeam(1, new TeamDTO(1L, "Team", "Italy"))).isEmpty();
+        assertThat(queue.updateDriver(1, driver(1, "Replaced"))).as("already queued").isPresent();
+    }
+
+    @Test
+    void rejectedBatchIsWrittenOneByOne() {
+        WriteBehindQueue queue = queue(10, 10);
+        when(driverService.batch(any())).thenThrow(new DataIntegrityViolationException("Referential integrity constraint violation"));
+        when(driverService.update(eq(1L), any(), isNull())).thenReturn(Optional.of(driver(1, "Written")));
+        when(driverService.update(eq(2L), any(), isNull())).thenReturn(Optional.empty());
+        when(driverService.update(eq(3L), any(), isNull())).thenThrow(new DataIntegrityViolationException("Team of ID 99 not found"));
+
+        WriteTicket written = queue.updateDriver(1, driver(1, "Written")).orElseThrow();
+        WriteTicket notFound = queue.updateDriver(2, driver(2, "Deleted")).orElseThrow();
+        WriteTicket failed = queue.updateDriver(3, driver(3, "Invalid")).orElseThrow();
+        queue.flush();
+
+        assertThat(status(queue, written)).isEqualTo(WriteTicket.Status.WRITTEN);
+        assertThat(status(queue, notFound)).isEqualTo(WriteTicket.Status.NOT_FOUND);
+        assertThat(queue.findTicket(failed.ticket())).get()
+                .extracting(WriteTicket::status, WriteTicket::message)
+                .containsExactly(WriteTicket.Status.FAILED, "Team of ID 99 not found");
+    }
+
+    @Test
+    void stopWritesEverythingQueued() {
+        WriteBehindQueue queue = queue(10, 2);
+        when(driverService.batch(any())).thenAnswer(invocation -> written(invocation.getArgument(0)));
+        List<WriteTicket> tickets = IntStream.rangeClosed(1, 5)
+                .mapToObj(id -> queue.updateDriver(id, driver(id, "Driver " + id)).orElseThrow())
+                .toList();
+
+        queue.stop();
+
+        verify(driverService, times(3)).batch(any());
+        assertThat(tickets).allSatisfy(ticket -> assertThat(status(queue, ticket)).isEqualTo(WriteTicket.Status.WRITTEN));
+        assertThat(queue.updateDriver(6, driver(6, "Too Late"))).isEmpty();
+    }
+
+    @Test
+    void queuedUpdateIsWrittenBeforeASynchronousWrite() {
+        WriteBehindQueue queue = queue(10, 10);
+        when(driverService.update(eq(1L), any(), isNull())).thenReturn(Optional.of(driver(1, "Queued")));
+        WriteTicket ticket = queue.updateDriver(1, driver(1, "Queued")).orElseThrow();
+
+        queue.writeQueuedDriver(1);
+        queue.writeQueuedDriver(2);
+        queue.flush();
+
+        verify(driverService).update(1L, driver(1, "Queued"), null);
+        verify(driverService, never()).batch(any());
+        assertThat(status(queue, ticket)).isEqualTo(WriteTicket.Status.WRITTEN);
+        verifyNoInteractions(teamService);
+    }
+
+    @Test
+    void synchronousWriteWaitsForTheBatchWritingItsDriver() throws Exception {
+        WriteBehindQueue queue = queue(10, 10);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        when(driverService.batch(any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            events.add("batch written");
+            return written(invocation.getArgument(0));
+        });
+        queue.updateDriver(1, driver(1, "Queued"));
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            executor.submit(queue::flush);
+            started.await();
+            Future<?> synchronous = executor.submit(() -> {
+                queue.writeQueuedDriver(1);
+                events.add("synchronous write");
+            });
+            Thread.sleep(50);
+            assertThat(synchronous).isNotDone();
+
+            release.countDown();
+            synchronous.get();
+        }
+        assertThat(events).containsExactly("batch written", "synchronous write");
+        verify(driverService, never()).update(eq(1L), any(), any());
+    }
+
+    WriteBehindQueue queue(int capacity, int batchSize) {
+        WriteBehindQueue queue = new WriteBehindQueue(driverService, teamService, capacity, batchSize, 60_000,
+                "maximumSize=100", new SimpleMeterRegistry());
+        queue.start();
+        return queue;
+    }
+
+    static List<BatchItemResult> written(BatchRequest<DriverDTO> batch) {
+        return IntStream.range(0, batch.update().size())
+                .mapToObj(index -> new BatchItemResult(BatchItemResult.Operation.UPDATE, index, batch.update().get(index).id(), 200, null))
+                .toList();
+    }
+
+    static WriteTicket.Status status(WriteBehindQueue queue, WriteTicket ticket) {
+        return queue.findTicket(ticket.ticket()).orElseThrow().status();
+    }
+
+    static DriverDTO driver(long id, String name) {
+        return new DriverDTO(id, name, "Finland", null);
+    }
+}